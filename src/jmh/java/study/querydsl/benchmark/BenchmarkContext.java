@@ -0,0 +1,87 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.QuerydslApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 벤치마크마다 인메모리 H2 를 띄우고 지정한 건수만큼 JDBC 배치로 회원/팀을 채운다.
+ * 쿼리 경로를 재도록 검색 결과 캐시, count 캐시, 2차 캐시는 모두 끈다.
+ */
+public final class BenchmarkContext {
+
+    public static final int TEAM_COUNT = 100;
+    private static final int BATCH = 10_000;
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String name, String... extraArgs) {
+        return new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments(name, extraArgs));
+    }
+
+    /**
+     * 임의 포트로 내장 Tomcat 까지 띄운다. 포트는 {@link #port(ConfigurableApplicationContext)} 로 얻는다.
+     */
+    public static ConfigurableApplicationContext startWeb(String name, String... extraArgs) {
+        return new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run(arguments(name, extraArgs));
+    }
+
+    public static int port(ConfigurableApplicationContext context) {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    private static String[] arguments(String name, String... extraArgs) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.profiles.active=bench");
+        args.add("--spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        args.add("--spring.jpa.hibernate.ddl-auto=create");
+        args.add("--logging.level.org.hibernate.SQL=warn");
+        args.add("--decorator.datasource.enabled=false");
+        args.add("--server.port=0");
+        // 같은 조건을 반복해서 부르므로 켜 두면 캐시 hit 를 재게 된다.
+        args.add("--querydsl.search.result-cache.enabled=false");
+        args.add("--querydsl.count-cache.max-size=0");
+        args.add("--spring.jpa.properties.hibernate.cache.use_second_level_cache=false");
+        args.add("--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        for (String arg : extraArgs) {
+            args.add(arg);
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * member_id 는 1..rows, team_id 는 1..TEAM_COUNT 로 채운다. 나이는 0..99 로 고르게 분포.
+     */
+    public static void seedMembers(ConfigurableApplicationContext context, int rows) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+        List<Object[]> teams = new ArrayList<>(TEAM_COUNT);
+        for (int t = 1; t <= TEAM_COUNT; t++) {
+            teams.add(new Object[]{(long) t, "team" + t});
+        }
+        jdbc.batchUpdate("insert into team (team_id, name) values (?, ?)", teams);
+
+        List<Object[]> batch = new ArrayList<>(BATCH);
+        for (int i = 1; i <= rows; i++) {
+            batch.add(new Object[]{(long) i, "member" + i, i % 100, (long) (i % TEAM_COUNT + 1)});
+            if (batch.size() == BATCH) {
+                jdbc.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", batch);
+        }
+        jdbc.execute("analyze");
+    }
+}
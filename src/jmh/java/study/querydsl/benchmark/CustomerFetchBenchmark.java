@@ -0,0 +1,89 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Customer;
+import study.querydsl.CustomerFetchStrategy;
+import study.querydsl.CustomerRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 고객 수/고객당 주문 수별로 Customer.AOrders 읽기 전략을 비교한다.
+ * 2차 캐시는 {@link BenchmarkContext} 가 끈다.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CustomerFetchBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int customers;
+
+    @Param({"1", "10"})
+    int ordersPerCustomer;
+
+    @Param({"SUBSELECT", "BATCH", "FETCH_JOIN", "TWO_PHASE"})
+    CustomerFetchStrategy strategy;
+
+    @Param({"100"})
+    int batchSize;
+
+    ConfigurableApplicationContext context;
+    CustomerRepository customerRepository;
+    TransactionTemplate transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("customer_fetch", "--querydsl.n-plus-one.enabled=false");
+        seed(context.getBean(JdbcTemplate.class));
+
+        customerRepository = context.getBean(CustomerRepository.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transaction.setReadOnly(true);
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        List<Object[]> customerRows = new ArrayList<>(customers);
+        List<Object[]> orderRows = new ArrayList<>(customers * ordersPerCustomer);
+        long orderId = 1;
+        for (long c = 1; c <= customers; c++) {
+            customerRows.add(new Object[]{c});
+            for (int o = 0; o < ordersPerCustomer; o++) {
+                orderRows.add(new Object[]{orderId++, "order" + o, c});
+            }
+        }
+        jdbc.batchUpdate("insert into customer (id) values (?)", customerRows);
+        jdbc.batchUpdate("insert into aorder (id, name, customer_id) values (?, ?, ?)", orderRows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int loadCustomersWithOrders() {
+        return transaction.execute(status -> {
+            int orders = 0;
+            for (Customer customer : customerRepository.findAllWithOrders(strategy, batchSize)) {
+                orders += customer.getAOrders().size();
+            }
+            return orders;
+        });
+    }
+}
@@ -0,0 +1,152 @@
+package study.querydsl.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.threads.VirtualThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 클라이언트 수를 올려 가며 /v2/members 를 HTTP 로 호출한다. 한 번의 호출 = clients 개의 동시 요청이므로
+ * 초당 요청 수는 (ops/s * clients) 다. virtual 모드는 JDK 21 이상에서만 돈다.
+ * DB 와 커넥션 풀이 한계가 되도록 결과 캐시와 admission control 은 끄고, 200 이 아닌 응답이 있으면 실패한다.
+ *
+ * ./gradlew jmh -PjmhInclude=HttpLoadBenchmark
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class HttpLoadBenchmark {
+
+    private static final int ROWS = 100_000;
+    // 시드 데이터에서 team{t} 회원의 나이는 모두 t - 1 이라, 나이 20~40 조건에 걸리는 팀은 team21 ~ team41 이다.
+    private static final int FIRST_TEAM = 21;
+    private static final int TEAMS = 21;
+    // 팀마다 ROWS / TEAM_COUNT 명이 모두 나이 조건에 걸린다.
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGES = ROWS / BenchmarkContext.TEAM_COUNT / PAGE_SIZE;
+
+    @Param({"platform", "virtual"})
+    String mode;
+
+    @Param({"64", "512", "2048"})
+    int clients;
+
+    ConfigurableApplicationContext context;
+    ExecutorService clientPool;
+    String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean virtual = "virtual".equals(mode);
+        if (virtual && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("virtual mode needs JDK 21+");
+        }
+        context = BenchmarkContext.startWeb("http_load_" + mode + "_" + clients,
+                "--querydsl.threads.virtual=" + virtual,
+                "--querydsl.n-plus-one.enabled=false",
+                "--querydsl.admission.enabled=false",
+                "--spring.datasource.hikari.maximum-pool-size=20",
+                "--spring.datasource.hikari.connection-timeout=30000",
+                "--server.tomcat.max-connections=10000",
+                "--server.tomcat.accept-count=1000");
+        BenchmarkContext.seedMembers(context, ROWS);
+        baseUrl = "http://localhost:" + BenchmarkContext.port(context);
+        clientPool = Executors.newFixedThreadPool(clients);
+        verifyResponse();
+    }
+
+    /**
+     * 파라미터 이름이 틀리면 필터 없이 전체를 페이징해서 돌려주므로, 측정 전에 한 번 결과가 걸러졌는지 확인한다.
+     */
+    private void verifyResponse() {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path(FIRST_TEAM, 0)).openConnection();
+            JsonNode content;
+            try (InputStream in = connection.getInputStream()) {
+                content = context.getBean(ObjectMapper.class).readTree(in).path("content");
+            }
+            if (content.size() == 0) {
+                throw new IllegalStateException("empty response for " + path(FIRST_TEAM, 0));
+            }
+            for (JsonNode row : content) {
+                int age = row.path("age").asInt();
+                if (!("team" + FIRST_TEAM).equals(row.path("teamName").asText()) || age < 20 || age > 40) {
+                    throw new IllegalStateException("response not filtered: " + row);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String path(int team, int page) {
+        return "/v2/members?teamname=team" + team + "&ageGoe=20&ageLoe=40&page=" + page + "&size=" + PAGE_SIZE;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientPool.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public int members() throws InterruptedException, ExecutionException {
+        List<Future<Integer>> responses = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            responses.add(clientPool.submit(this::request));
+        }
+        // 503 등을 빼고 세면 처리량이 부풀려지므로 측정을 실패시킨다.
+        Map<Integer, Integer> failed = new TreeMap<>();
+        for (Future<Integer> response : responses) {
+            int status = response.get();
+            if (status != 200) {
+                failed.merge(status, 1, Integer::sum);
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("non-200 responses (status=count): " + failed);
+        }
+        return clients;
+    }
+
+    private int request() throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        URL url = new URL(baseUrl + path(FIRST_TEAM + random.nextInt(TEAMS), random.nextInt(PAGES)));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        // keep-alive 로 커넥션을 재사용하려면 본문을 끝까지 읽어야 한다.
+        byte[] buffer = new byte[8192];
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            while (in != null && in.read(buffer) != -1) {
+                // drain
+            }
+        }
+        return status;
+    }
+}
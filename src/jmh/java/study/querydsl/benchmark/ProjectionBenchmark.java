@@ -0,0 +1,124 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.projection.LambdaProjections;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.QMember.member;
+import static study.querydsl.QTeam.team;
+
+/**
+ * DTO 프로젝션 방식별 비용.
+ * map* 은 DB 없이 행 → DTO 변환만, query* 는 실제 쿼리까지 포함해서 잰다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+    @Param({"1000", "100000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    JPAQueryFactory queryFactory;
+
+    FactoryExpression<MemberDto> reflectiveBean = Projections.bean(MemberDto.class, member.username, member.age);
+    FactoryExpression<MemberDto> reflectiveFields = Projections.fields(MemberDto.class, member.username, member.age);
+    FactoryExpression<MemberDto> lambdaBean = LambdaProjections.bean(MemberDto.class, member.username, member.age);
+    FactoryExpression<MemberDto> lambdaFields = LambdaProjections.fields(MemberDto.class, member.username, member.age);
+    FactoryExpression<MemberDto> queryProjection = new QMemberDto(member.username, member.age);
+
+    Object[][] rawRows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("projection_" + rows);
+        BenchmarkContext.seedMembers(context, rows);
+        queryFactory = context.getBean(JPAQueryFactory.class);
+
+        rawRows = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            rawRows[i] = new Object[]{"member" + i, i % 100};
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private void map(FactoryExpression<MemberDto> projection, Blackhole bh) {
+        for (Object[] row : rawRows) {
+            bh.consume(projection.newInstance(row));
+        }
+    }
+
+    @Benchmark
+    public void mapReflectiveBean(Blackhole bh) {
+        map(reflectiveBean, bh);
+    }
+
+    @Benchmark
+    public void mapReflectiveFields(Blackhole bh) {
+        map(reflectiveFields, bh);
+    }
+
+    @Benchmark
+    public void mapLambdaBean(Blackhole bh) {
+        map(lambdaBean, bh);
+    }
+
+    @Benchmark
+    public void mapLambdaFields(Blackhole bh) {
+        map(lambdaFields, bh);
+    }
+
+    @Benchmark
+    public void mapQueryProjection(Blackhole bh) {
+        map(queryProjection, bh);
+    }
+
+    @Benchmark
+    public List<MemberDto> queryReflectiveBean() {
+        return queryFactory.select(reflectiveBean).from(member).fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> queryLambdaBean() {
+        return queryFactory.select(lambdaBean).from(member).fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> queryQueryProjection() {
+        return queryFactory.select(queryProjection).from(member).fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> queryMemberTeamDto() {
+        return queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .fetch();
+    }
+}
@@ -0,0 +1,27 @@
+package study.querydsl;
+
+/**
+ * Customer.AOrders 를 읽어오는 방법. 호출하는 쪽에서 데이터 모양에 맞게 고른다.
+ */
+public enum CustomerFetchStrategy {
+
+    /**
+     * 엔티티 매핑(@Fetch(SUBSELECT)) 그대로: 처음 컬렉션을 건드릴 때 원래 고객 쿼리를 서브쿼리로 다시 실행해 한 번에 채운다.
+     */
+    SUBSELECT,
+
+    /**
+     * 고객을 먼저 읽고, batchSize 명씩 in 절 fetch join 으로 주문을 채운다. (@BatchSize 와 같은 효과를 호출마다 크기를 정해서)
+     */
+    BATCH,
+
+    /**
+     * 고객과 주문을 fetch join 쿼리 하나로 읽는다.
+     */
+    FETCH_JOIN,
+
+    /**
+     * 고객 id 만 먼저 읽고, id 를 batchSize 개씩 in 절로 넘겨 고객 + 주문을 fetch join 한다.
+     */
+    TWO_PHASE
+}
@@ -0,0 +1,7 @@
+package study.querydsl;
+
+import java.util.List;
+
+public interface CustomerRepositoryCustom {
+    List<Customer> findAllWithOrders(CustomerFetchStrategy strategy, int batchSize);
+}
@@ -0,0 +1,78 @@
+package study.querydsl;
+
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+@Transactional(readOnly = true)
+public class CustomerRepositoryImpl implements CustomerRepositoryCustom {
+
+    private final EntityManager em;
+
+    public CustomerRepositoryImpl(EntityManager em) {
+        this.em = em;
+    }
+
+    @Override
+    public List<Customer> findAllWithOrders(CustomerFetchStrategy strategy, int batchSize) {
+        switch (strategy) {
+            case SUBSELECT:
+                return findAllSubselect();
+            case BATCH:
+                return findAllBatch(batchSize);
+            case FETCH_JOIN:
+                return findAllFetchJoin();
+            case TWO_PHASE:
+                return findAllTwoPhase(batchSize);
+            default:
+                throw new IllegalArgumentException("unknown strategy: " + strategy);
+        }
+    }
+
+    private List<Customer> findAllSubselect() {
+        List<Customer> customers = em.createQuery("select c from Customer c order by c.id", Customer.class)
+                .getResultList();
+        // 첫 초기화에서 서브쿼리로 모든 고객의 주문이 채워지고, 나머지는 이미 초기화된 상태다.
+        customers.forEach(c -> Hibernate.initialize(c.getAOrders()));
+        return customers;
+    }
+
+    private List<Customer> findAllBatch(int batchSize) {
+        List<Customer> customers = em.createQuery("select c from Customer c order by c.id", Customer.class)
+                .getResultList();
+        for (int from = 0; from < customers.size(); from += batchSize) {
+            List<Customer> chunk = customers.subList(from, Math.min(from + batchSize, customers.size()));
+            em.createQuery("select distinct c from Customer c left join fetch c.AOrders where c in :chunk", Customer.class)
+                    .setParameter("chunk", chunk)
+                    .setHint(QueryHints.PASS_DISTINCT_THROUGH, false)
+                    .getResultList();
+        }
+        return customers;
+    }
+
+    private List<Customer> findAllFetchJoin() {
+        return em.createQuery("select distinct c from Customer c left join fetch c.AOrders order by c.id", Customer.class)
+                .setHint(QueryHints.PASS_DISTINCT_THROUGH, false)
+                .getResultList();
+    }
+
+    private List<Customer> findAllTwoPhase(int batchSize) {
+        List<Long> ids = em.createQuery("select c.id from Customer c order by c.id", Long.class)
+                .getResultList();
+
+        List<Customer> customers = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            customers.addAll(em.createQuery(
+                    "select distinct c from Customer c left join fetch c.AOrders where c.id in :ids order by c.id", Customer.class)
+                    .setParameter("ids", chunk)
+                    .setHint(QueryHints.PASS_DISTINCT_THROUGH, false)
+                    .getResultList());
+        }
+        return customers;
+    }
+}
@@ -1,42 +1,27 @@
 package study.querydsl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
 
 @Profile("local")
 @Component
 @RequiredArgsConstructor
 public class InitMember {
 
-    private final InitMemberService initMemberService;
+    private final MemberSeeder memberSeeder;
 
-    @PostConstruct
-    public void init() {
-        initMemberService.init();
-    }
+    @Value("${querydsl.seed.members:100}")
+    private int memberCount;
 
-    @Component
-    static class InitMemberService {
-        @PersistenceContext
-        private EntityManager em;
+    @Value("${querydsl.seed.teams:2}")
+    private int teamCount;
 
-        @Transactional
-        public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + 1, i, selectedTeam));
-            }
-        }
+    @PostConstruct
+    public void init() {
+        memberSeeder.seed(memberCount, teamCount);
     }
 }
@@ -1,27 +1,52 @@
 package study.querydsl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberKeysetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_KEYSET_SIZE = 1000;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int MAX_BATCH_CONDITIONS = 100;
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
-        return memberJpaRepository.search(condition);
+        // 같은 조건이 반복되므로 결과 캐시를 거치는 MemberRepository 로 조회한다.
+        return memberRepository.search(condition);
     }
 
     @GetMapping("/v2/members")
@@ -34,4 +59,72 @@ public class MemberController {
         return memberRepository.searchPageComplex(condition, pageable);
     }
 
+    /**
+     * 전체 건수 없이 다음 페이지 여부만 돌려준다(count 쿼리 없음). sort 는 id, username, age 만 받는다.
+     */
+    @GetMapping("/v5/members")
+    public Slice<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable) {
+        try {
+            return memberRepository.searchSlice(condition, pageable);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * /v1/members 와 같은 조건이지만 결과를 메모리에 모으지 않고 응답 스트림에 바로 쓴다.
+     */
+    @GetMapping("/v1/members/export")
+    public void exportMembersV1(MemberSearchCondition condition,
+                                @RequestParam(defaultValue = "NDJSON") MemberExportFormat format,
+                                HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        ObjectWriter json = objectMapper.writerFor(MemberTeamDto.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), 64 * 1024);
+
+        format.writeHeader(out);
+        try {
+            memberJpaRepository.searchStream(condition, EXPORT_FETCH_SIZE, row -> {
+                try {
+                    format.writeRow(out, json, row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    @GetMapping("/v4/members")
+    public MemberKeysetPage searchMemberV4(MemberSearchCondition condition,
+                                           @RequestParam(required = false) String after,
+                                           @RequestParam(defaultValue = "20") int size,
+                                           @RequestParam(defaultValue = "ID") MemberCursor.SortKey sort) {
+        MemberCursor cursor;
+        try {
+            cursor = after != null ? MemberCursor.decode(after) : null;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_KEYSET_SIZE));
+        return memberRepository.searchKeyset(condition, sort, cursor, pageSize);
+    }
+
+    /**
+     * 필터마다 /v1/members 를 따로 부르는 대신 조건 목록을 한 번에 받아 쿼리 한 번으로 조회한다.
+     * 결과는 요청한 조건 순서대로 돌려준다.
+     */
+    @PostMapping("/v1/members/batch")
+    public List<List<MemberTeamDto>> searchMemberBatchV1(@RequestBody List<MemberSearchCondition> conditions) {
+        if (conditions.size() > MAX_BATCH_CONDITIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at most " + MAX_BATCH_CONDITIONS + " conditions per batch");
+        }
+        return memberRepository.searchBatch(conditions);
+    }
 }
@@ -0,0 +1,72 @@
+package study.querydsl;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public enum MemberExportFormat {
+
+    NDJSON("application/x-ndjson") {
+        @Override
+        void writeHeader(Writer out) {
+        }
+
+        @Override
+        void writeRow(Writer out, ObjectWriter json, MemberTeamDto row) throws IOException {
+            json.writeValue(out, row);
+            out.write('\n');
+        }
+    },
+
+    CSV("text/csv") {
+        @Override
+        void writeHeader(Writer out) throws IOException {
+            out.write("memberId,username,age,teamId,teamName\n");
+        }
+
+        @Override
+        void writeRow(Writer out, ObjectWriter json, MemberTeamDto row) throws IOException {
+            out.write(String.valueOf(row.getMemberId()));
+            out.write(',');
+            writeCsvText(out, row.getUsername());
+            out.write(',');
+            out.write(Integer.toString(row.getAge()));
+            out.write(',');
+            if (row.getTeamId() != null) {
+                out.write(String.valueOf(row.getTeamId()));
+            }
+            out.write(',');
+            writeCsvText(out, row.getTeamName());
+            out.write('\n');
+        }
+    };
+
+    private final String contentType;
+
+    MemberExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    abstract void writeHeader(Writer out) throws IOException;
+
+    abstract void writeRow(Writer out, ObjectWriter json, MemberTeamDto row) throws IOException;
+
+    private static void writeCsvText(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,81 @@
+package study.querydsl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 대량의 회원/팀 데이터를 적재한다.
+ * hibernate.jdbc.batch_size 단위로 flush/clear 하고, CHUNK_SIZE 단위로 커밋해서
+ * 영속성 컨텍스트와 트랜잭션이 데이터 크기와 무관하게 작게 유지된다.
+ */
+@Slf4j
+@Component
+public class MemberSeeder {
+
+    private static final int CHUNK_SIZE = 50_000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public MemberSeeder(PlatformTransactionManager transactionManager,
+                        @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:1000}") int batchSize) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    public void seed(int memberCount, int teamCount) {
+        long start = System.currentTimeMillis();
+        List<Long> teamIds = transactionTemplate.execute(status -> persistTeams(teamCount));
+
+        for (int from = 0; from < memberCount; from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, memberCount);
+            int chunkFrom = from;
+            transactionTemplate.executeWithoutResult(status -> persistMembers(chunkFrom, to, teamIds));
+            log.info("seeded {}/{} members", to, memberCount);
+        }
+        log.info("seeding {} members / {} teams took {} ms", memberCount, teamCount, System.currentTimeMillis() - start);
+    }
+
+    private List<Long> persistTeams(int teamCount) {
+        List<Long> ids = new ArrayList<>(teamCount);
+        for (int i = 0; i < teamCount; i++) {
+            Team team = new Team(teamName(i));
+            em.persist(team);
+            ids.add(team.getId());
+        }
+        return ids;
+    }
+
+    private void persistMembers(int from, int to, List<Long> teamIds) {
+        for (int i = from; i < to; i++) {
+            Member member = new Member("member" + i, i % 100);
+            if (!teamIds.isEmpty()) {
+                // 생성자로 팀을 넘기면 team.getMembers() 때문에 프록시가 초기화되므로 참조만 건다.
+                member.setTeam(em.getReference(Team.class, teamIds.get(i % teamIds.size())));
+            }
+            em.persist(member);
+
+            if ((i - from + 1) % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    private static String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+}
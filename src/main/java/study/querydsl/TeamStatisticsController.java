@@ -0,0 +1,21 @@
+package study.querydsl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.stats.TeamStatisticsView;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamStatisticsController {
+
+    private final TeamStatisticsView teamStatisticsView;
+
+    @GetMapping("/teams/stats")
+    public List<TeamStatisticsDto> teamStats() {
+        return teamStatisticsView.findAll();
+    }
+}
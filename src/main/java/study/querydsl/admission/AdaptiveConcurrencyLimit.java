@@ -0,0 +1,82 @@
+package study.querydsl.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 관측한 지연으로 동시 실행 한도를 조정한다(gradient 방식).
+ * 지연이 장기 평균의 tolerance 배를 넘으면 그 비율만큼 한도를 줄이고, 아니면 sqrt(limit) 만큼 늘린다.
+ * 타임아웃/5xx 같은 실패는 곱셈으로 줄인다(AIMD 의 MD).
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double BASELINE_ALPHA = 0.05;
+    private static final double BACKOFF = 0.9;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    // 장기 평균 지연. update() 안에서만 읽고 쓴다.
+    private double baselineNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        update(latencyNanos, dropped, current);
+    }
+
+    private synchronized void update(long latencyNanos, boolean dropped, int inFlightAtCompletion) {
+        if (dropped) {
+            limit = clamp(limit * BACKOFF, minLimit, maxLimit);
+            return;
+        }
+        if (baselineNanos == 0 || latencyNanos < baselineNanos) {
+            // 부하가 빠지면 기준도 빨리 내려와야 다음 과부하를 알아챈다.
+            baselineNanos = baselineNanos == 0 ? latencyNanos : (baselineNanos + latencyNanos) / 2;
+        } else {
+            baselineNanos += (latencyNanos - baselineNanos) * BASELINE_ALPHA;
+        }
+
+        double gradient = clamp(tolerance * baselineNanos / Math.max(1, latencyNanos), MIN_GRADIENT, 1.0);
+        double target = limit * gradient + Math.sqrt(limit);
+        if (target > limit && inFlightAtCompletion < limit / 2) {
+            // 한도의 절반도 쓰지 않고 있으면 늘릴 근거가 없다.
+            return;
+        }
+        limit = clamp(limit * (1 - SMOOTHING) + target * SMOOTHING, minLimit, maxLimit);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,93 @@
+package study.querydsl.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import study.querydsl.MemberController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * MemberController 엔드포인트마다 따로 적응형 동시 실행 한도(bulkhead)를 두고,
+ * 한도를 넘는 요청은 DB 커넥션을 기다리게 하지 않고 바로 503 + Retry-After 로 돌려보낸다.
+ * 다른 컨트롤러(/hello 등)는 거치지 않는다.
+ */
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+
+    private static final String LIMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".limit";
+    private static final String START_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".start";
+
+    private final AdmissionProperties properties;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public AdmissionControlInterceptor(AdmissionProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod) || ((HandlerMethod) handler).getBeanType() != MemberController.class) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(pattern != null ? pattern.toString() : "UNKNOWN", this::register);
+
+        if (!bulkhead.limit.tryAcquire()) {
+            bulkhead.rejected.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfterSeconds()));
+            return false;
+        }
+        request.setAttribute(LIMIT_ATTRIBUTE, bulkhead.limit);
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AdaptiveConcurrencyLimit limit = (AdaptiveConcurrencyLimit) request.getAttribute(LIMIT_ATTRIBUTE);
+        if (limit == null) {
+            return;
+        }
+        long latency = System.nanoTime() - (Long) request.getAttribute(START_ATTRIBUTE);
+        // 커넥션 타임아웃 등으로 실패한 요청은 과부하 신호로 본다.
+        limit.release(latency, ex != null || response.getStatus() >= 500);
+    }
+
+    private Bulkhead register(String uri) {
+        int max = properties.getBulkheads().getOrDefault(uri, properties.getMaxLimit());
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+                Math.min(properties.getInitialLimit(), max), properties.getMinLimit(), max, properties.getTolerance());
+
+        Gauge.builder("http.server.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .tag("uri", uri)
+                .register(registry);
+        Gauge.builder("http.server.admission.inflight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .tag("uri", uri)
+                .register(registry);
+        Counter rejected = Counter.builder("http.server.admission.rejected")
+                .tag("uri", uri)
+                .register(registry);
+        return new Bulkhead(limit, rejected);
+    }
+
+    private static final class Bulkhead {
+        private final AdaptiveConcurrencyLimit limit;
+        private final Counter rejected;
+
+        private Bulkhead(AdaptiveConcurrencyLimit limit, Counter rejected) {
+            this.limit = limit;
+            this.rejected = rejected;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 100;
+    // 지연이 기준(장기 평균)의 몇 배까지 늘어나도 한도를 줄이지 않을지
+    private double tolerance = 2.0;
+    private int retryAfterSeconds = 1;
+    // 엔드포인트 패턴별 동시 실행 상한(bulkhead). 없으면 maxLimit
+    private Map<String, Integer> bulkheads = new LinkedHashMap<>();
+}
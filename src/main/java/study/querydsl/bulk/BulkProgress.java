@@ -0,0 +1,23 @@
+package study.querydsl.bulk;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class BulkProgress {
+
+    private final int totalChunks;
+    private final int completedChunks;
+    private final long affectedRows;
+
+    public BulkProgress(int totalChunks, int completedChunks, long affectedRows) {
+        this.totalChunks = totalChunks;
+        this.completedChunks = completedChunks;
+        this.affectedRows = affectedRows;
+    }
+
+    public boolean isDone() {
+        return completedChunks == totalChunks;
+    }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.bulk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 청크 시작 간격을 일정하게 벌린다. 대기는 락 밖에서 한다.
+ */
+class ChunkRateLimiter {
+
+    private final long intervalNanos;
+    private long next = System.nanoTime();
+
+    ChunkRateLimiter(double chunksPerSecond) {
+        this.intervalNanos = chunksPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / chunksPerSecond) : 0;
+    }
+
+    void acquire() {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long wait = reserve();
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        long start = Math.max(next, now);
+        next = start + intervalNanos;
+        return start - now;
+    }
+}
@@ -0,0 +1,170 @@
+package study.querydsl.bulk;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Member;
+import study.querydsl.event.MemberBulkChangedEvent;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static study.querydsl.QMember.member;
+
+/**
+ * 회원 벌크 update/delete 를 id 범위 청크로 나눠 청크마다 별도 트랜잭션으로 병렬 실행한다.
+ * 테이블 전체를 한 번에 잠그지 않고, 끝나면 1차/2차 캐시와 변경을 따라가는 뷰를 정리한다.
+ *
+ * 이미 커밋된 청크는 되돌리지 않는다. 실패하면 남은 청크를 멈추고 예외를 던진다.
+ */
+@Slf4j
+@Service
+public class MemberBulkService {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final EntityManagerFactory emf;
+    private final JPAQueryFactory queryFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate chunkTransaction;
+    private final ExecutorService executor;
+    private final long chunkSize;
+    private final double chunksPerSecond;
+
+    public MemberBulkService(EntityManagerFactory emf, JPAQueryFactory queryFactory,
+                             ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                             @Value("${querydsl.bulk.chunk-size:10000}") long chunkSize,
+                             @Value("${querydsl.bulk.parallelism:4}") int parallelism,
+                             @Value("${querydsl.bulk.chunks-per-second:0}") double chunksPerSecond) {
+        this.emf = emf;
+        this.queryFactory = queryFactory;
+        this.eventPublisher = eventPublisher;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = Executors.newFixedThreadPool(parallelism);
+        this.chunkSize = chunkSize;
+        this.chunksPerSecond = chunksPerSecond;
+    }
+
+    public BulkProgress update(Predicate where, Consumer<JPAUpdateClause> setter, Consumer<BulkProgress> progressListener) {
+        return execute(where, range -> {
+            JPAUpdateClause clause = queryFactory.update(member).where(where, range);
+            setter.accept(clause);
+            return clause.execute();
+        }, progressListener);
+    }
+
+    public BulkProgress delete(Predicate where, Consumer<BulkProgress> progressListener) {
+        return execute(where, range -> queryFactory.delete(member).where(where, range).execute(), progressListener);
+    }
+
+    private BulkProgress execute(Predicate where, Function<Predicate, Long> chunkOperation, Consumer<BulkProgress> progressListener) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // 청크는 다른 스레드의 새 트랜잭션이라, 호출자 트랜잭션이 잡은 락을 기다리며 멈출 수 있다.
+            throw new IllegalStateException("bulk operations must run outside of a transaction");
+        }
+
+        Tuple bounds = chunkTransaction.execute(status -> queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .where(where)
+                .fetchOne());
+        Long minId = bounds == null ? null : bounds.get(member.id.min());
+        Long maxId = bounds == null ? null : bounds.get(member.id.max());
+        if (minId == null) {
+            return new BulkProgress(0, 0, 0);
+        }
+
+        int totalChunks = (int) ((maxId - minId) / chunkSize + 1);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicLong affected = new AtomicLong();
+        ChunkRateLimiter rateLimiter = new ChunkRateLimiter(chunksPerSecond);
+        List<Future<?>> futures = new ArrayList<>(totalChunks);
+
+        try {
+            for (long from = minId; from <= maxId; from += chunkSize) {
+                long lo = from;
+                long hi = Math.min(from + chunkSize - 1, maxId);
+                futures.add(executor.submit(() -> {
+                    rateLimiter.acquire();
+                    Long rows = chunkTransaction.execute(status -> chunkOperation.apply(member.id.between(lo, hi)));
+                    BulkProgress progress = new BulkProgress(totalChunks, completed.incrementAndGet(),
+                            affected.addAndGet(rows == null ? 0 : rows));
+                    log.debug("bulk chunk [{}, {}] done: {}", lo, hi, progress);
+                    if (progressListener != null) {
+                        progressListener.accept(progress);
+                    }
+                }));
+            }
+            awaitAll(futures);
+        } finally {
+            evictCaches(minId, maxId);
+            eventPublisher.publishEvent(new MemberBulkChangedEvent(minId, maxId));
+        }
+        return new BulkProgress(totalChunks, completed.get(), affected.get());
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(false));
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(false));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for bulk chunks", e);
+        }
+    }
+
+    private void evictCaches(long minId, long maxId) {
+        emf.getCache().evict(Member.class);
+
+        // 요청에 묶인 영속성 컨텍스트(OSIV)가 있으면 범위 안의 회원을 분리해서 stale 상태로 읽지 않게 한다.
+        if (!TransactionSynchronizationManager.hasResource(emf)) {
+            return;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Member) {
+                Long id = (Long) entry.getValue().getId();
+                if (id != null && id >= minId && id <= maxId) {
+                    em.detach(entry.getKey());
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
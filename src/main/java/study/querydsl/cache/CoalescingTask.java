@@ -0,0 +1,83 @@
+package study.querydsl.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 작업을 전용 스레드 하나에서 돌린다. 도는 동안 들어온 요청은 합쳐서, 끝난 뒤 한 번만 다시 돌린다.
+ * 커밋 콜백이나 이벤트를 발행한 스레드가 오래 걸리는 재계산을 기다리지 않게 떼어 내는 데 쓴다.
+ */
+@Slf4j
+public class CoalescingTask {
+
+    private final String name;
+    private final Runnable task;
+    private final ExecutorService executor;
+
+    // 아직 반영되지 않은 요청이 있는지, 실행(예약 포함) 중인지
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public CoalescingTask(String name, Runnable task) {
+        this.name = name;
+        this.task = task;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(name + "-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    public void request() {
+        dirty.set(true);
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // 종료 중
+            scheduled.set(false);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (dirty.getAndSet(false)) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.warn("{} failed", name, e);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+        }
+        // 루프를 빠져나온 뒤 scheduled 를 내리기 전에 들어온 요청
+        if (dirty.get()) {
+            request();
+        }
+    }
+
+    /**
+     * 지금까지 들어온 요청이 모두 처리될 때까지 기다린다. timeout 안에 끝나면 true.
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (dirty.get() || scheduled.get()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
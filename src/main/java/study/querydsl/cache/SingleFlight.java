@@ -0,0 +1,97 @@
+package study.querydsl.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 같은 키로 동시에 들어온 호출을 하나로 합친다. 먼저 들어온 호출(leader)이 직접 실행하고,
+ * 실행 중에 들어온 호출은 그 결과를 기다려 같이 쓴다. 락 없이 putIfAbsent 로 leader 를 정한다.
+ *
+ * 기다리다 timeout 이 지나면 직접 실행한다. leader 가 실패하면 기다리던 호출도 같은 예외를 받는다.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutNanos;
+
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public SingleFlight(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            return lead(key, flight, call);
+        }
+        waiting.incrementAndGet();
+        try {
+            V value = existing.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            shared.increment();
+            return value;
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return call.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for in-flight call", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private V lead(K key, CompletableFuture<V> flight, Supplier<V> call) {
+        try {
+            V value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * 직접 실행하지 않고 다른 호출의 결과를 받은 횟수(= 아낀 호출 수).
+     */
+    public long sharedCount() {
+        return shared.sum();
+    }
+
+    public long timeoutCount() {
+        return timeouts.sum();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * 지금 다른 호출의 결과를 기다리고 있는 호출 수.
+     */
+    public int waitingCount() {
+        return waiting.get();
+    }
+}
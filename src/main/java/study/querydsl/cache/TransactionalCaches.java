@@ -0,0 +1,18 @@
+package study.querydsl.cache;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TransactionalCaches {
+
+    private TransactionalCaches() {
+    }
+
+    /**
+     * 공유 캐시를 읽고 채워도 되는지 여부.
+     * 쓰기 트랜잭션 안에서는 아직 커밋되지 않은 데이터가 보이므로 캐시를 우회한다.
+     */
+    public static boolean isShareable() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * querydsl.datasource.routing.enabled=true 일 때만 primary + 레플리카 라우팅 DataSource 를 등록한다.
+ *
+ * 라우팅은 트랜잭션이 커넥션을 처음 얻을 때 정해진다. OSIV 가 켜져 있으면 요청의 첫 트랜잭션이 얻은 커넥션을
+ * 요청 끝까지 들고 있어서, 같은 요청의 읽기 뒤 쓰기(또는 쓰기 뒤 읽기)가 엉뚱한 쪽으로 간다. 그래서 OSIV 와 함께 켤 수 없다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class DataSourceRoutingConfig {
+
+    /**
+     * 자동 설정의 DataSource 처럼 spring.datasource.hikari.* (풀 크기, timeout 등)를 바인딩한다.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primary, ReplicaDataSourceProperties routing,
+                                 @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (openInView) {
+            throw new IllegalStateException("set spring.jpa.open-in-view=false when querydsl.datasource.routing.enabled=true");
+        }
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primary);
+
+        List<String> replicaKeys = new ArrayList<>();
+        for (int i = 0; i < routing.getReplicas().size(); i++) {
+            ReplicaDataSourceProperties.Replica replica = routing.getReplicas().get(i);
+            String key = "replica-" + i;
+            replicaKeys.add(key);
+            // 풀 크기, timeout 등은 primary 설정을 그대로 쓰고 접속 정보만 바꾼다.
+            HikariDataSource dataSource = new HikariDataSource();
+            primary.copyStateTo(dataSource);
+            dataSource.setPoolName(key);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setReadOnly(replica.isReadOnly());
+            targets.put(key, dataSource);
+        }
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replicaKeys);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primary);
+        routingDataSource.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "querydsl.datasource.routing", name = "snapshot-on-startup", havingValue = "true")
+    public ReplicaSnapshot replicaSnapshot(HikariDataSource primary, ReplicaDataSourceProperties routing) {
+        return new ReplicaSnapshot(primary, routing);
+    }
+}
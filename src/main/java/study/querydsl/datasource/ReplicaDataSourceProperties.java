@@ -0,0 +1,29 @@
+package study.querydsl.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.datasource.routing")
+public class ReplicaDataSourceProperties {
+
+    private boolean enabled;
+    // 로컬 확인용. 기동이 끝나면 primary 의 스키마와 데이터를 레플리카에 한 번 복사한다(ReplicaSnapshot).
+    private boolean snapshotOnStartup;
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        // 레플리카 커넥션은 기본으로 읽기 전용으로 연다.
+        private boolean readOnly = true;
+    }
+}
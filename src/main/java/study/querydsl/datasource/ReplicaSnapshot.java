@@ -0,0 +1,44 @@
+package study.querydsl.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * 로컬에서 라우팅을 눈으로 확인하기 위한 H2 전용 "복제". 기동이 끝나면(스키마 생성과 시드 이후)
+ * primary 를 SCRIPT 로 떠서 각 레플리카에 다시 실행한다. 그 뒤의 쓰기는 복사되지 않으므로
+ * 레플리카로 간 읽기는 기동 시점의 데이터를 본다.
+ */
+@Slf4j
+public class ReplicaSnapshot {
+
+    private final DataSource primary;
+    private final ReplicaDataSourceProperties routing;
+
+    public ReplicaSnapshot(DataSource primary, ReplicaDataSourceProperties routing) {
+        this.primary = primary;
+        this.routing = routing;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void copyToReplicas() {
+        for (ReplicaDataSourceProperties.Replica replica : routing.getReplicas()) {
+            // 레플리카 풀은 읽기 전용이므로 쓰기용 커넥션을 따로 연다.
+            int statements = copy(primary, new DriverManagerDataSource(replica.getUrl(), replica.getUsername(), replica.getPassword()));
+            log.info("copied primary to replica {} ({} statements)", replica.getUrl(), statements);
+        }
+    }
+
+    static int copy(DataSource from, DataSource to) {
+        List<String> script = new JdbcTemplate(from).queryForList("SCRIPT", String.class);
+        JdbcTemplate target = new JdbcTemplate(to);
+        target.execute("DROP ALL OBJECTS");
+        script.forEach(target::execute);
+        return script.size();
+    }
+}
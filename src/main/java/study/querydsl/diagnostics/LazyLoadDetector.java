@@ -0,0 +1,149 @@
+package study.querydsl.diagnostics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 지연 로딩(프록시 초기화, 컬렉션 초기화)을 연관관계별로 세서 N+1 을 잡아낸다.
+ * 트랜잭션 하나(트랜잭션이 없으면 요청 하나) 안에서 같은 연관관계가 threshold 번을 넘게 지연 로딩되면
+ * 호출 위치를 로그로 남기거나(LOG) 예외를 던진다(FAIL).
+ * 트랜잭션도 요청도 아닌 곳(풀 스레드의 비동기 작업 등)에서는 세지 않는다. 비울 시점이 없어 스레드에 카운트가 남기 때문이다.
+ * 2차 캐시에서 바로 채워지는 로딩은 쿼리가 나가지 않으므로 세지 않는다.
+ */
+@Slf4j
+@Component
+public class LazyLoadDetector {
+
+    public enum Action {
+        LOG, FAIL
+    }
+
+    private static final String APP_PACKAGE = "study.querydsl.";
+
+    private final ThreadLocal<Map<String, Integer>> counts = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> requestScope = new ThreadLocal<>();
+
+    private final EntityManagerFactory emf;
+    private final boolean enabled;
+    private final int threshold;
+    private final Action action;
+
+    public LazyLoadDetector(EntityManagerFactory emf,
+                            @Value("${querydsl.n-plus-one.enabled:true}") boolean enabled,
+                            @Value("${querydsl.n-plus-one.threshold:10}") int threshold,
+                            @Value("${querydsl.n-plus-one.action:LOG}") Action action) {
+        this.emf = emf;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.action = action;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!enabled) {
+            return;
+        }
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+
+        // 기본 리스너보다 먼저 봐야 로딩 전에 2차 캐시에 있었는지 알 수 있다.
+        registry.prependListeners(EventType.LOAD, (LoadEventListener) (event, loadType) -> {
+            // 프록시 초기화는 IMMEDIATE_LOAD 로 들어온다. em.find 같은 직접 조회는 세지 않는다.
+            if (loadType == LoadEventListener.IMMEDIATE_LOAD
+                    && !cached(event.getSession(), cache -> cache.containsEntity(event.getEntityClassName(), event.getEntityId()))) {
+                record(event.getEntityClassName());
+            }
+        });
+        registry.prependListeners(EventType.INIT_COLLECTION, (InitializeCollectionEventListener) event -> {
+            PersistentCollection collection = event.getCollection();
+            if (!cached(event.getSession(), cache -> cache.containsCollection(collection.getRole(), collection.getKey()))) {
+                record(collection.getRole());
+            }
+        });
+    }
+
+    /**
+     * 요청 단위 범위를 연다. 트랜잭션 밖에서 일어난 지연 로딩(OSIV)은 이 범위 안에서만 센다.
+     */
+    public void begin() {
+        requestScope.set(Boolean.TRUE);
+    }
+
+    /**
+     * 요청 단위 범위를 닫고 카운트를 비운다.
+     */
+    public void reset() {
+        counts.remove();
+        requestScope.remove();
+    }
+
+    private static boolean cached(SessionImplementor session, Predicate<Cache> contains) {
+        return session.getCacheMode().isGetEnabled()
+                && session.getFactory().getSessionFactoryOptions().isSecondLevelCacheEnabled()
+                && contains.test(session.getFactory().getCache());
+    }
+
+    private void record(String association) {
+        Map<String, Integer> current = counts.get();
+        if (current == null) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        // 요청 범위는 그대로 두고 이 트랜잭션에서 센 것만 비운다.
+                        counts.remove();
+                    }
+                });
+            } else if (requestScope.get() == null) {
+                return;
+            }
+            current = new HashMap<>();
+            counts.set(current);
+        }
+
+        int count = current.merge(association, 1, Integer::sum);
+        if (count != threshold + 1) {
+            return;
+        }
+
+        String message = "N+1 suspected: " + association + " lazily loaded " + count
+                + " times in one unit of work (threshold " + threshold + ") at " + callSite();
+        if (action == Action.FAIL) {
+            throw new NPlusOneQueryException(message);
+        }
+        log.warn(message);
+    }
+
+    private static String callSite() {
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith(APP_PACKAGE)
+                    && !className.startsWith(LazyLoadDetector.class.getPackage().getName())
+                    && !className.contains("$HibernateProxy$")
+                    && !className.contains("$$")) {
+                return frame.toString();
+            }
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.diagnostics;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 트랜잭션 밖(OSIV)의 지연 로딩은 요청 하나를 단위로 센다.
+ */
+@Configuration
+public class LazyLoadScopeConfig implements WebMvcConfigurer {
+
+    private final LazyLoadDetector detector;
+
+    public LazyLoadScopeConfig(LazyLoadDetector detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                detector.begin();
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+                detector.reset();
+            }
+        });
+    }
+}
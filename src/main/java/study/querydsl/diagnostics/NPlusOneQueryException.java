@@ -0,0 +1,8 @@
+package study.querydsl.diagnostics;
+
+public class NPlusOneQueryException extends RuntimeException {
+
+    public NPlusOneQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,55 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 키셋(seek) 페이징용 커서.
+ * 클라이언트에게는 정렬 키와 마지막 회원 id 를 인코딩한 불투명(opaque) 문자열로만 노출한다.
+ */
+@Getter
+public class MemberCursor {
+
+    public enum SortKey {
+        ID, AGE
+    }
+
+    private final SortKey sortKey;
+    private final Integer age;
+    private final Long memberId;
+
+    private MemberCursor(SortKey sortKey, Integer age, Long memberId) {
+        this.sortKey = sortKey;
+        this.age = age;
+        this.memberId = memberId;
+    }
+
+    public static MemberCursor after(SortKey sortKey, MemberTeamDto last) {
+        return new MemberCursor(sortKey, sortKey == SortKey.AGE ? last.getAge() : null, last.getMemberId());
+    }
+
+    public String encode() {
+        String raw = sortKey == SortKey.AGE
+                ? "age:" + age + ":" + memberId
+                : "id:" + memberId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length == 2 && parts[0].equals("id")) {
+                return new MemberCursor(SortKey.ID, null, Long.parseLong(parts[1]));
+            }
+            if (parts.length == 3 && parts[0].equals("age")) {
+                return new MemberCursor(SortKey.AGE, Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+            }
+        } catch (IllegalArgumentException e) {
+            // Base64 / 숫자 파싱 실패 모두 잘못된 커서로 처리
+        }
+        throw new IllegalArgumentException("invalid cursor: " + encoded);
+    }
+}
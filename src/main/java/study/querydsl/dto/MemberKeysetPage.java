@@ -0,0 +1,19 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MemberKeysetPage {
+
+    private List<MemberTeamDto> content;
+    private boolean hasNext;
+    private String nextCursor;
+
+    public MemberKeysetPage(List<MemberTeamDto> content, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -2,6 +2,8 @@ package study.querydsl.dto;
 
 import lombok.Data;
 
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
 
@@ -10,6 +12,9 @@ public class MemberSearchCondition {
     private String teamname;
     private Integer ageGoe;
     private Integer ageLoe;
+    // 회원명 접두어/부분 문자열 (username 인메모리 인덱스로 찾는다)
+    private String usernamePrefix;
+    private String usernameContains;
 
 
     public MemberSearchCondition() {
@@ -21,4 +26,18 @@ public class MemberSearchCondition {
         this.ageGoe = ageGoe;
         this.ageLoe = ageLoe;
     }
+
+    /**
+     * 캐시 키로 쓰기 위한 사본. 조건에서 무시되는 빈 문자열은 null 로 맞춘다.
+     */
+    public MemberSearchCondition normalized() {
+        MemberSearchCondition normalized = new MemberSearchCondition(blankToNull(username), blankToNull(teamname), ageGoe, ageLoe);
+        normalized.setUsernamePrefix(blankToNull(usernamePrefix));
+        normalized.setUsernameContains(blankToNull(usernameContains));
+        return normalized;
+    }
+
+    private static String blankToNull(String value) {
+        return hasText(value) ? value : null;
+    }
 }
@@ -0,0 +1,31 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class TeamStatisticsDto {
+
+    private Long teamId;
+    private String teamName;
+    private long count;
+    private long sumAge;
+    private Double avgAge;
+    private Integer minAge;
+    private Integer maxAge;
+    // "20-29" 처럼 10살 단위 구간별 회원 수
+    private Map<String, Long> ageHistogram;
+
+    public TeamStatisticsDto(Long teamId, String teamName, long count, long sumAge,
+                             Integer minAge, Integer maxAge, Map<String, Long> ageHistogram) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.count = count;
+        this.sumAge = sumAge;
+        this.avgAge = count == 0 ? null : (double) sumAge / count;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.ageHistogram = ageHistogram;
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ * Hibernate 엔티티 이벤트(insert/update/delete)를 리스너에 전달하기 위한 값 객체.
+ */
+@Getter
+public class EntityChange {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    private final Type type;
+    private final Object entity;
+    private final Serializable id;
+    private final String[] propertyNames;
+    private final Object[] state;
+    private final Object[] oldState;
+
+    public EntityChange(Type type, Object entity, Serializable id, String[] propertyNames, Object[] state, Object[] oldState) {
+        this.type = type;
+        this.entity = entity;
+        this.id = id;
+        this.propertyNames = propertyNames;
+        this.state = state;
+        this.oldState = oldState;
+    }
+
+    public boolean isOf(Class<?> entityClass) {
+        return entityClass.isInstance(entity);
+    }
+
+    public Object getState(String property) {
+        return valueOf(state, property);
+    }
+
+    public Object getOldState(String property) {
+        return valueOf(oldState, property);
+    }
+
+    private Object valueOf(Object[] values, String property) {
+        if (values == null) {
+            return null;
+        }
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (propertyNames[i].equals(property)) {
+                return values[i];
+            }
+        }
+        throw new IllegalArgumentException("unknown property: " + property);
+    }
+}
@@ -0,0 +1,141 @@
+package study.querydsl.event;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Hibernate 이벤트 리스너를 한 번만 등록하고, 변경을 {@link EntityChangeListener} 빈들에 나눠준다.
+ */
+@Component
+public class EntityChangeDispatcher {
+
+    private final EntityManagerFactory emf;
+    private final ObjectProvider<EntityChangeListener> listenerProvider;
+    private volatile List<EntityChangeListener> listeners;
+
+    public EntityChangeDispatcher(EntityManagerFactory emf, ObjectProvider<EntityChangeListener> listenerProvider) {
+        this.emf = emf;
+        this.listenerProvider = listenerProvider;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+
+        FlushListener flush = new FlushListener();
+        registry.appendListeners(EventType.POST_INSERT, flush);
+        registry.appendListeners(EventType.POST_UPDATE, flush);
+        registry.appendListeners(EventType.POST_DELETE, flush);
+
+        CommitListener commit = new CommitListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, commit);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, commit);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, commit);
+    }
+
+    private void dispatch(EntityChange change, BiConsumer<EntityChangeListener, EntityChange> callback) {
+        List<EntityChangeListener> targets = listeners;
+        if (targets == null) {
+            // 리스너 빈 끼리의 순환 참조를 피하려고 첫 이벤트 때 조회한다.
+            targets = listenerProvider.orderedStream().collect(Collectors.toList());
+            listeners = targets;
+        }
+        for (EntityChangeListener listener : targets) {
+            callback.accept(listener, change);
+        }
+    }
+
+    private static EntityChange insert(PostInsertEvent event) {
+        return new EntityChange(EntityChange.Type.INSERT, event.getEntity(), event.getId(),
+                event.getPersister().getPropertyNames(), event.getState(), null);
+    }
+
+    private static EntityChange update(PostUpdateEvent event) {
+        return new EntityChange(EntityChange.Type.UPDATE, event.getEntity(), event.getId(),
+                event.getPersister().getPropertyNames(), event.getState(), event.getOldState());
+    }
+
+    private static EntityChange delete(PostDeleteEvent event) {
+        return new EntityChange(EntityChange.Type.DELETE, event.getEntity(), event.getId(),
+                event.getPersister().getPropertyNames(), null, event.getDeletedState());
+    }
+
+    private class FlushListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            dispatch(insert(event), EntityChangeListener::onFlush);
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            dispatch(update(event), EntityChangeListener::onFlush);
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            dispatch(delete(event), EntityChangeListener::onFlush);
+        }
+
+        @Override
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return false;
+        }
+    }
+
+    private class CommitListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            dispatch(insert(event), EntityChangeListener::afterCommit);
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            dispatch(update(event), EntityChangeListener::afterCommit);
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            dispatch(delete(event), EntityChangeListener::afterCommit);
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+
+        @Override
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.event;
+
+/**
+ * 엔티티 변경을 구독한다. 스프링 빈으로 등록하면 {@link EntityChangeDispatcher} 가 자동으로 호출한다.
+ */
+public interface EntityChangeListener {
+
+    /**
+     * flush 시점(트랜잭션 안)에 호출된다. 롤백될 수 있는 변경이다.
+     */
+    default void onFlush(EntityChange change) {
+    }
+
+    /**
+     * 트랜잭션이 커밋된 뒤에 호출된다.
+     */
+    default void afterCommit(EntityChange change) {
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.event;
+
+/**
+ * JPQL 벌크 update/delete 로 회원이 바뀌었음을 알린다.
+ * 벌크 연산은 Hibernate 엔티티 이벤트를 남기지 않으므로, 변경을 따라가는 캐시/뷰는 이 이벤트로 다시 맞춘다.
+ */
+public class MemberBulkChangedEvent {
+
+    private final long minId;
+    private final long maxId;
+
+    public MemberBulkChangedEvent(long minId, long maxId) {
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+}
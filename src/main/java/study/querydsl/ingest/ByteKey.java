@@ -0,0 +1,71 @@
+package study.querydsl.ingest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 바이트 배열 구간을 키로 쓰기 위한 래퍼. 조회할 때는 하나를 재사용하고({@link #set}),
+ * 맵에 넣을 때만 {@link #copy()} 로 고정된 사본을 만든다.
+ */
+final class ByteKey {
+
+    private byte[] bytes;
+    private int offset;
+    private int length;
+    private int hash;
+
+    ByteKey() {
+    }
+
+    private ByteKey(byte[] bytes, int offset, int length, int hash) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.hash = hash;
+    }
+
+    ByteKey set(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        int h = 1;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        this.hash = h;
+        return this;
+    }
+
+    ByteKey copy() {
+        return new ByteKey(Arrays.copyOfRange(bytes, offset, offset + length), 0, length, hash);
+    }
+
+    String decode() {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ByteKey)) {
+            return false;
+        }
+        ByteKey other = (ByteKey) o;
+        if (hash != other.hash || length != other.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] != other.bytes[other.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,306 @@
+package study.querydsl.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.querydsl.Member;
+import study.querydsl.Team;
+import study.querydsl.event.MemberBulkChangedEvent;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * username,age,teamName 형식의 CSV 를 회원으로 적재한다.
+ *
+ * 파일을 줄 경계에 맞춘 파티션으로 나눠 파티션마다 메모리 매핑하고, 각 파티션을 별도 스레드의
+ * StatelessSession 으로 JDBC 배치 insert 한다. 영속성 컨텍스트를 거치지 않으므로 메모리 사용량이 파일 크기와 무관하다.
+ * 나이는 바이트에서 바로 숫자로 읽고, 팀 이름은 문자열을 만들지 않고 바이트 키로 팀 캐시에서 찾는다.
+ *
+ * 필드는 따옴표로 감쌀 수 있고("" 는 따옴표 하나), 감싼 필드 안에는 쉼표가 들어가도 된다.
+ * 파티션 경계를 줄바꿈으로 찾기 때문에 따옴표 안의 줄바꿈은 지원하지 않는다(닫히지 않은 따옴표로 보고 건너뛴다).
+ * 나이를 읽을 수 없는 줄(헤더 포함)은 건너뛴다. 네 번째 이후 필드는 무시한다.
+ * StatelessSession 은 엔티티 이벤트와 2차 캐시를 거치지 않으므로 끝나면 캐시를 비우고 {@link MemberBulkChangedEvent} 를 발행한다.
+ * 이미 커밋된 구간은 실패해도 되돌리지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberCsvImporter {
+
+    // 한 번에 매핑할 수 있는 크기(2GB 미만)보다 작게 파티션을 자른다.
+    private static final long MAX_PARTITION_BYTES = 1L << 30;
+    private static final int MAX_FIELD_BYTES = 1024;
+    private static final int MAX_AGE_BYTES = 9;
+
+    private final EntityManagerFactory emf;
+    private final SessionFactory sessionFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int parallelism;
+    private final int batchSize;
+    private final int commitInterval;
+
+    public MemberCsvImporter(EntityManagerFactory emf, ApplicationEventPublisher eventPublisher,
+                             @Value("${querydsl.import.parallelism:4}") int parallelism,
+                             @Value("${querydsl.import.commit-interval:50000}") int commitInterval,
+                             @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:1000}") int batchSize) {
+        this.emf = emf;
+        this.sessionFactory = emf.unwrap(SessionFactory.class);
+        this.eventPublisher = eventPublisher;
+        this.parallelism = parallelism;
+        this.commitInterval = commitInterval;
+        this.batchSize = batchSize;
+    }
+
+    public MemberImportResult importFile(Path path) {
+        long start = System.currentTimeMillis();
+        TeamNameCache teams = new TeamNameCache(sessionFactory);
+        long imported = 0;
+        long skipped = 0;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        boolean completed = false;
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<Future<PartitionLoader>> futures = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long[] partition : partitions(channel)) {
+                futures.add(executor.submit(() -> {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, partition[0], partition[1] - partition[0]);
+                    PartitionLoader loader = new PartitionLoader(teams);
+                    loader.load(buffer);
+                    return loader;
+                }));
+            }
+            for (Future<PartitionLoader> future : futures) {
+                PartitionLoader loader = future.get();
+                imported += loader.imported;
+                skipped += loader.skipped;
+                minId = Math.min(minId, loader.minId);
+                maxId = Math.max(maxId, loader.maxId);
+            }
+            completed = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while importing " + path, e);
+        } finally {
+            executor.shutdownNow();
+            afterImport(completed, minId, maxId);
+        }
+
+        MemberImportResult result = new MemberImportResult(imported, skipped, teams.createdCount(),
+                System.currentTimeMillis() - start);
+        log.info("imported {}: {}", path, result);
+        return result;
+    }
+
+    private void afterImport(boolean completed, long minId, long maxId) {
+        emf.getCache().evict(Member.class);
+        emf.getCache().evict(Team.class);
+        sessionFactory.getCache().evictQueryRegions();
+        if (!completed) {
+            // 실패하면 어느 파티션까지 커밋됐는지 모르므로 전체 범위로 알린다.
+            eventPublisher.publishEvent(new MemberBulkChangedEvent(Long.MIN_VALUE, Long.MAX_VALUE));
+        } else if (minId <= maxId) {
+            eventPublisher.publishEvent(new MemberBulkChangedEvent(minId, maxId));
+        }
+    }
+
+    /**
+     * 파일을 [시작, 끝) 구간으로 나눈다. 경계는 항상 줄의 시작이다.
+     */
+    private List<long[]> partitions(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(parallelism, (size + MAX_PARTITION_BYTES - 1) / MAX_PARTITION_BYTES);
+        List<long[]> partitions = new ArrayList<>(count);
+        long from = 0;
+        for (int i = 1; i <= count && from < size; i++) {
+            long to = i == count ? size : nextLineStart(channel, size * i / count);
+            if (to > from) {
+                partitions.add(new long[]{from, to});
+                from = to;
+            }
+        }
+        return partitions;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long pos = position;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+    }
+
+    /**
+     * 파티션 하나를 읽는 스레드 전용 상태. 필드 바이트를 담는 버퍼와 팀 조회 키를 줄마다 재사용하고,
+     * 건수/id 범위도 스레드 안에서 세어 끝난 뒤에 합친다.
+     */
+    private class PartitionLoader {
+
+        private final TeamNameCache teams;
+
+        private final byte[] username = new byte[MAX_FIELD_BYTES];
+        private final byte[] age = new byte[MAX_AGE_BYTES];
+        private final byte[] teamName = new byte[MAX_FIELD_BYTES];
+        // readField 가 마지막으로 읽은 필드 길이
+        private int fieldLength;
+        private final ByteKey teamKey = new ByteKey();
+
+        private long imported;
+        private long skipped;
+        private long minId = Long.MAX_VALUE;
+        private long maxId = Long.MIN_VALUE;
+
+        private PartitionLoader(TeamNameCache teams) {
+            this.teams = teams;
+        }
+
+        private void load(ByteBuffer buffer) {
+            try (StatelessSession session = sessionFactory.openStatelessSession()) {
+                session.setJdbcBatchSize(batchSize);
+                Transaction tx = session.beginTransaction();
+                int uncommitted = 0;
+
+                int limit = buffer.limit();
+                int pos = 0;
+                while (pos < limit) {
+                    int lineEnd = pos;
+                    while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                        lineEnd++;
+                    }
+                    if (insertLine(session, buffer, pos, lineEnd) && ++uncommitted == commitInterval) {
+                        tx.commit();
+                        tx = session.beginTransaction();
+                        uncommitted = 0;
+                    }
+                    pos = lineEnd + 1;
+                }
+                tx.commit();
+            }
+        }
+
+        private boolean insertLine(StatelessSession session, ByteBuffer buffer, int from, int to) {
+            if (to > from && buffer.get(to - 1) == '\r') {
+                to--;
+            }
+            if (from == to) {
+                return false;
+            }
+
+            // 각 필드 다음 위치. 마지막 필드였으면 to + 1, 형식이 잘못됐으면 -1.
+            int ageFrom = readField(buffer, from, to, username);
+            int usernameLength = fieldLength;
+            int teamFrom = ageFrom < 0 || ageFrom > to ? -1 : readField(buffer, ageFrom, to, age);
+            int memberAge = teamFrom < 0 ? -1 : parseAge(fieldLength);
+            int teamNameLength = 0;
+            if (memberAge >= 0 && teamFrom <= to) {
+                memberAge = readField(buffer, teamFrom, to, teamName) < 0 ? -1 : memberAge;
+                teamNameLength = fieldLength;
+            }
+            if (memberAge < 0) {
+                skipped++;
+                return false;
+            }
+
+            Member member = new Member(new String(username, 0, usernameLength, StandardCharsets.UTF_8), memberAge);
+            if (teamNameLength > 0) {
+                member.setTeam(teams.resolve(teamKey.set(teamName, 0, teamNameLength)));
+            }
+            session.insert(member);
+
+            imported++;
+            minId = Math.min(minId, member.getId());
+            maxId = Math.max(maxId, member.getId());
+            return true;
+        }
+
+        /**
+         * from 에서 시작하는 필드를 target 에 담고(길이는 fieldLength) 구분자 다음 위치를 돌려준다.
+         * 따옴표로 감싼 필드는 따옴표를 벗기고 "" 를 " 로 바꾼다. 따옴표가 닫히지 않았거나 target 보다 길면 -1.
+         * UTF-8 의 멀티바이트 문자에는 '"' 나 ',' 바이트가 나오지 않으므로 바이트 단위로 봐도 된다.
+         */
+        private int readField(ByteBuffer buffer, int from, int to, byte[] target) {
+            int length = 0;
+            int pos = from;
+            if (pos < to && buffer.get(pos) == '"') {
+                pos++;
+                while (true) {
+                    if (pos >= to) {
+                        return -1;
+                    }
+                    byte b = buffer.get(pos++);
+                    if (b == '"') {
+                        if (pos < to && buffer.get(pos) == '"') {
+                            pos++;
+                        } else {
+                            break;
+                        }
+                    }
+                    if (length == target.length) {
+                        return -1;
+                    }
+                    target[length++] = b;
+                }
+                if (pos < to && buffer.get(pos) != ',') {
+                    return -1;
+                }
+            } else {
+                while (pos < to && buffer.get(pos) != ',') {
+                    if (length == target.length) {
+                        return -1;
+                    }
+                    target[length++] = buffer.get(pos++);
+                }
+            }
+            fieldLength = length;
+            return pos + 1;
+        }
+
+        private int parseAge(int length) {
+            if (length == 0) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = 0; i < length; i++) {
+                int digit = age[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+    }
+}
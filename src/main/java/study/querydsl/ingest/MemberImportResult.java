@@ -0,0 +1,21 @@
+package study.querydsl.ingest;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class MemberImportResult {
+
+    private final long importedRows;
+    private final long skippedRows;
+    private final int createdTeams;
+    private final long elapsedMillis;
+
+    public MemberImportResult(long importedRows, long skippedRows, int createdTeams, long elapsedMillis) {
+        this.importedRows = importedRows;
+        this.skippedRows = skippedRows;
+        this.createdTeams = createdTeams;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.ingest;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import study.querydsl.Team;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 임포트 중 팀 이름(바이트) -> Team 조회용 로컬 캐시. 시작할 때 기존 팀을 모두 읽고,
+ * 없는 팀은 한 번만 만들어서 바로 커밋한다(다른 파티션이 같은 팀을 중복으로 만들지 않도록).
+ * 캐시의 Team 은 id 만 쓰는 분리된 인스턴스다.
+ */
+class TeamNameCache {
+
+    private final SessionFactory sessionFactory;
+    private final Map<ByteKey, Team> teams = new ConcurrentHashMap<>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    TeamNameCache(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            List<Team> existing = session.createQuery("select t from Team t", Team.class).getResultList();
+            for (Team team : existing) {
+                byte[] name = team.getName().getBytes(StandardCharsets.UTF_8);
+                teams.putIfAbsent(new ByteKey().set(name, 0, name.length), team);
+            }
+        }
+    }
+
+    /**
+     * probe 는 호출 스레드가 재사용하는 키다. 캐시에 있으면 바이트를 복사하거나 문자열을 만들지 않는다.
+     */
+    Team resolve(ByteKey probe) {
+        Team team = teams.get(probe);
+        return team != null ? team : create(probe.copy());
+    }
+
+    private synchronized Team create(ByteKey key) {
+        Team team = teams.get(key);
+        if (team != null) {
+            return team;
+        }
+        String name = key.decode();
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction tx = session.beginTransaction();
+            team = new Team(name);
+            session.insert(team);
+            tx.commit();
+        }
+        created.incrementAndGet();
+        teams.put(key, team);
+        return team;
+    }
+
+    int createdCount() {
+        return created.get();
+    }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberKeysetPage;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 저장소 메서드별 지연 시간(퍼센타일 히스토그램)과 반환 행 수를 기록한다.
+ * 예외로 끝난 호출(timeout, 락 대기 등 대개 가장 느린 호출)도 outcome=error 로 지연 시간을 남긴다.
+ * 미터는 메서드별로 한 번만 만들어 캐시한다.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * study.querydsl.repository.MemberRepository+.*(..))"
+            + " || execution(public * study.querydsl.repository.MemberJpaRepository.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        Meters m = meters.computeIfAbsent(joinPoint.getSignature().toShortString(),
+                key -> new Meters(joinPoint.getSignature().getDeclaringType().getSimpleName(),
+                        joinPoint.getSignature().getName()));
+
+        long start = System.nanoTime();
+        boolean success = false;
+        Object result;
+        try {
+            result = joinPoint.proceed();
+            success = true;
+        } finally {
+            (success ? m.success : m.error).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        long rows = rowCount(result);
+        if (rows >= 0) {
+            m.rows.record(rows);
+            RequestStats.current().addRows(rows);
+        }
+        return result;
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof MemberKeysetPage) {
+            return ((MemberKeysetPage) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+
+    private final class Meters {
+        private final Timer success;
+        private final Timer error;
+        private final DistributionSummary rows;
+
+        private Meters(String repository, String method) {
+            this.success = latency(repository, method, "success");
+            this.error = latency(repository, method, "error");
+            this.rows = DistributionSummary.builder("repository.rows")
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+
+        private Timer latency(String repository, String method, String outcome) {
+            return Timer.builder("repository.invocations")
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 엔드포인트별 요청당 SQL 실행 수와 반환 행 수를 기록한다.
+ * 지연 시간은 스프링 부트의 http.server.requests 타이머가 기록한다.
+ */
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, DistributionSummary[]> summaries = new ConcurrentHashMap<>();
+
+    public RequestMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestStats.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary[] meters = summaries.computeIfAbsent(uri, this::register);
+        RequestStats stats = RequestStats.current();
+        meters[0].record(stats.getStatements());
+        meters[1].record(stats.getRows());
+        RequestStats.reset();
+    }
+
+    private DistributionSummary[] register(String uri) {
+        return new DistributionSummary[]{
+                DistributionSummary.builder("http.server.sql.statements")
+                        .tag("uri", uri)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(registry),
+                DistributionSummary.builder("http.server.rows")
+                        .tag("uri", uri)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(registry)
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.metrics;
+
+/**
+ * 요청(스레드) 단위로 실행된 SQL 수와 반환한 행 수를 모은다.
+ * 스레드마다 자기 값만 건드리므로 동기화가 필요 없다.
+ *
+ * ThreadLocal 이라 요청 스레드에서 실행된 것만 센다. 다른 스레드에서 도는 병렬 count(ParallelCountExecutor),
+ * 검색 캐시 백그라운드 갱신(search-refresh-), 일괄 조회(member-loader-)의 SQL 과 행 수는 어느 요청에도 들어가지 않는다.
+ * 그 스레드들은 reset 되지 않으므로 값을 읽어 쓰지 않는다.
+ */
+public final class RequestStats {
+
+    private static final ThreadLocal<RequestStats> CURRENT = ThreadLocal.withInitial(RequestStats::new);
+
+    private int statements;
+    private long rows;
+
+    private RequestStats() {
+    }
+
+    public static RequestStats current() {
+        return CURRENT.get();
+    }
+
+    public static void reset() {
+        RequestStats stats = CURRENT.get();
+        stats.statements = 0;
+        stats.rows = 0;
+    }
+
+    void addStatement() {
+        statements++;
+    }
+
+    void addRows(long count) {
+        rows += count;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hibernate 가 준비하는 모든 SQL 을 센다. 전체 합계는 LongAdder, 요청별 값은 {@link RequestStats}.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private final LongAdder total = new LongAdder();
+
+    @Override
+    public String inspect(String sql) {
+        total.increment();
+        RequestStats.current().addStatement();
+        return sql;
+    }
+
+    public long total() {
+        return total.sum();
+    }
+}
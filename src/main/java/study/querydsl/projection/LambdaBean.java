@@ -0,0 +1,76 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Visitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Projections.bean / Projections.fields 와 같은 방식으로 쓰는 프로젝션.
+ * 행을 DTO 로 옮기는 매퍼를 미리 만들어 두므로 행마다 리플렉션을 쓰지 않는다.
+ */
+public class LambdaBean<T> extends FactoryExpressionBase<T> {
+
+    private final List<Expression<?>> args;
+    private final RowMappers.RowMapper<T> mapper;
+
+    LambdaBean(Class<? extends T> type, boolean fieldAccess, Expression<?>... args) {
+        super(type);
+        this.args = Collections.unmodifiableList(Arrays.asList(args));
+        this.mapper = RowMappers.forType(castType(type), propertyNames(args), fieldAccess);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Class<T> castType(Class<? extends T> type) {
+        return (Class<T>) type;
+    }
+
+    private static List<String> propertyNames(Expression<?>... args) {
+        List<String> names = new ArrayList<>(args.length);
+        for (Expression<?> arg : args) {
+            if (arg instanceof Path) {
+                names.add(((Path<?>) arg).getMetadata().getName());
+            } else if (arg instanceof Operation && ((Operation<?>) arg).getOperator() == Ops.ALIAS) {
+                names.add(((Path<?>) ((Operation<?>) arg).getArg(1)).getMetadata().getName());
+            } else {
+                throw new IllegalArgumentException("use a path or an alias (expr.as(\"name\")) for " + arg);
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    @Override
+    public T newInstance(Object... row) {
+        return mapper.map(row);
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof LambdaBean)) {
+            return false;
+        }
+        FactoryExpression<?> other = (FactoryExpression<?>) obj;
+        return getType().equals(other.getType()) && args.equals(other.getArgs());
+    }
+}
@@ -0,0 +1,26 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.types.Expression;
+
+/**
+ * {@link com.querydsl.core.types.Projections#bean} / {@link com.querydsl.core.types.Projections#fields} 대체.
+ */
+public final class LambdaProjections {
+
+    private LambdaProjections() {
+    }
+
+    /**
+     * setter 접근
+     */
+    public static <T> LambdaBean<T> bean(Class<? extends T> type, Expression<?>... exprs) {
+        return new LambdaBean<>(type, false, exprs);
+    }
+
+    /**
+     * 필드 직접 접근
+     */
+    public static <T> LambdaBean<T> fields(Class<? extends T> type, Expression<?>... exprs) {
+        return new LambdaBean<>(type, true, exprs);
+    }
+}
@@ -0,0 +1,168 @@
+package study.querydsl.projection;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * DTO 클래스 + 프로퍼티 목록마다 행(Object[]) → DTO 매퍼를 한 번만 만들어 캐시한다.
+ * 생성자와 setter 는 LambdaMetafactory 로 만든 람다, 필드는 MethodHandle 로 호출하므로
+ * 행마다 리플렉션 조회/호출이 일어나지 않는다.
+ */
+final class RowMappers {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final ConcurrentMap<Key, RowMapper<?>> CACHE = new ConcurrentHashMap<>();
+
+    private RowMappers() {
+    }
+
+    interface RowMapper<T> {
+        T map(Object[] row);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> RowMapper<T> forType(Class<T> type, List<String> properties, boolean fieldAccess) {
+        return (RowMapper<T>) CACHE.computeIfAbsent(new Key(type, properties, fieldAccess), RowMappers::create);
+    }
+
+    private static RowMapper<?> create(Key key) {
+        Supplier<Object> constructor = constructor(key.type);
+        BiConsumer<Object, Object>[] writers = writers(key);
+        return row -> {
+            Object bean = constructor.get();
+            for (int i = 0; i < writers.length; i++) {
+                // QBean 과 같이 null 은 건너뛴다(기본형 필드에 null 을 넣을 수 없음).
+                if (row[i] != null) {
+                    writers[i].accept(bean, row[i]);
+                }
+            }
+            return bean;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object>[] writers(Key key) {
+        BiConsumer<Object, Object>[] writers = new BiConsumer[key.properties.size()];
+        for (int i = 0; i < writers.length; i++) {
+            String property = key.properties.get(i);
+            writers[i] = key.fieldAccess ? fieldWriter(key.type, property) : setterWriter(key.type, property);
+        }
+        return writers;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> constructor(Class<?> type) {
+        try {
+            MethodHandle handle = LOOKUP.findConstructor(type, MethodType.methodType(void.class));
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get",
+                    MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class),
+                    handle,
+                    MethodType.methodType(type));
+            return (Supplier<Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(type.getName() + " needs a public no-args constructor", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setterWriter(Class<?> type, String property) {
+        Method setter = findSetter(type, property);
+        try {
+            MethodHandle handle = LOOKUP.unreflect(setter);
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(void.class, type, boxed(setter.getParameterTypes()[0])));
+            return (BiConsumer<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("cannot bind setter " + setter, e);
+        }
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    private static BiConsumer<Object, Object> fieldWriter(Class<?> type, String property) {
+        Field field = findField(type, property);
+        try {
+            field.setAccessible(true);
+            MethodHandle handle = LOOKUP.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return (bean, value) -> {
+                try {
+                    handle.invokeExact(bean, value);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("cannot bind field " + field, e);
+        }
+    }
+
+    private static Method findSetter(Class<?> type, String property) {
+        String name = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == 1) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException("no setter for " + property + " in " + type.getName());
+    }
+
+    private static Field findField(Class<?> type, String property) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.getName().equals(property)) {
+                    return field;
+                }
+            }
+        }
+        throw new IllegalArgumentException("no field " + property + " in " + type.getName());
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final List<String> properties;
+        private final boolean fieldAccess;
+
+        private Key(Class<?> type, List<String> properties, boolean fieldAccess) {
+            this.type = type;
+            this.properties = properties;
+            this.fieldAccess = fieldAccess;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return type == other.type && fieldAccess == other.fieldAccess && properties.equals(other.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[]{type, properties, fieldAccess});
+        }
+    }
+}
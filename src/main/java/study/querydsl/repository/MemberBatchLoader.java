@@ -0,0 +1,149 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Member;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 id 조회를 모아서 where id in (...) 한 번으로 처리한다(DataLoader 방식).
+ *
+ * {@link #load(Long)} 는 window 동안(또는 maxBatchSize 가 찰 때까지) 들어온 id 를 중복 없이 모아
+ * 별도 스레드의 읽기 전용 트랜잭션에서 조회한다. 돌려받는 회원은 분리된(detached) 상태라 팀은 fetch join 으로 함께 읽는다.
+ * 한 요청 안에서 id 목록을 이미 알고 있으면 {@link #loadAll(Collection)} 로 현재 영속성 컨텍스트에서 바로 읽는다.
+ *
+ * id 개수가 달라도 쿼리 플랜이 재사용되도록 hibernate.query.in_clause_parameter_padding 을 켜 둔다.
+ */
+@Component
+public class MemberBatchLoader {
+
+    private static final String FETCH_BY_IDS = "select m from Member m left join fetch m.team where m.id in :ids";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final ScheduledExecutorService dispatcher;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private Map<Long, CompletableFuture<Optional<Member>>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduled;
+
+    public MemberBatchLoader(PlatformTransactionManager transactionManager,
+                             @Value("${querydsl.batch-loader.window-millis:2}") long windowMillis,
+                             @Value("${querydsl.batch-loader.max-batch-size:100}") int maxBatchSize,
+                             @Value("${querydsl.batch-loader.threads:2}") int threads) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.dispatcher = Executors.newScheduledThreadPool(threads, new CustomizableThreadFactory("member-loader-"));
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public CompletableFuture<Optional<Member>> load(Long id) {
+        Map<Long, CompletableFuture<Optional<Member>>> full = null;
+        CompletableFuture<Optional<Member>> future;
+        synchronized (lock) {
+            future = pending.get(id);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(id, future);
+            if (pending.size() >= maxBatchSize) {
+                full = drain();
+            } else if (pending.size() == 1) {
+                scheduled = dispatcher.schedule(this::dispatchPending, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            Map<Long, CompletableFuture<Optional<Member>>> batch = full;
+            dispatcher.execute(() -> dispatch(batch));
+        }
+        return future;
+    }
+
+    /**
+     * 현재 트랜잭션/영속성 컨텍스트에서 바로 조회한다. 없는 id 는 결과에 없다.
+     */
+    public Map<Long, Member> loadAll(Collection<Long> ids) {
+        return fetch(new LinkedHashSet<>(ids));
+    }
+
+    private Map<Long, CompletableFuture<Optional<Member>>> drain() {
+        Map<Long, CompletableFuture<Optional<Member>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        return batch;
+    }
+
+    private void dispatchPending() {
+        Map<Long, CompletableFuture<Optional<Member>>> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    private void dispatch(Map<Long, CompletableFuture<Optional<Member>>> batch) {
+        try {
+            Map<Long, Member> found = readOnlyTransaction.execute(status -> fetch(batch.keySet()));
+            batch.forEach((id, future) -> future.complete(Optional.ofNullable(found.get(id))));
+        } catch (RuntimeException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private Map<Long, Member> fetch(Collection<Long> ids) {
+        Map<Long, Member> result = new HashMap<>(ids.size() * 2);
+        List<Long> chunk = new ArrayList<>(Math.min(ids.size(), maxBatchSize));
+        for (Long id : ids) {
+            chunk.add(id);
+            if (chunk.size() == maxBatchSize) {
+                fetchChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            fetchChunk(chunk, result);
+        }
+        return result;
+    }
+
+    private void fetchChunk(List<Long> ids, Map<Long, Member> result) {
+        for (Member member : em.createQuery(FETCH_BY_IDS, Member.class).setParameter("ids", ids).getResultList()) {
+            result.put(member.getId(), member);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+}
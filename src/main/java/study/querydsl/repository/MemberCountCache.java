@@ -0,0 +1,75 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.querydsl.Member;
+import study.querydsl.Team;
+import study.querydsl.cache.BoundedTtlCache;
+import study.querydsl.cache.TransactionalCaches;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.EntityChange;
+import study.querydsl.event.EntityChangeListener;
+import study.querydsl.event.MemberBulkChangedEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 같은 검색 조건으로 페이지만 넘길 때 count 쿼리를 반복하지 않도록 조건별 total 을 캐시한다.
+ * Member / Team 변경이 커밋되면 비운다. count 도중에 비워지면 그 결과는 넣지 않는다(generation 비교).
+ */
+@Component
+public class MemberCountCache implements EntityChangeListener {
+
+    private final BoundedTtlCache<MemberSearchCondition, Long> cache;
+
+    // 비울 때마다 증가. count 시작 시점 값과 다르면 결과를 넣지 않는다.
+    private long generation;
+
+    public MemberCountCache(@Value("${querydsl.count-cache.max-size:1000}") int maxSize,
+                            @Value("${querydsl.count-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.cache = new BoundedTtlCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    public long count(MemberSearchCondition condition, LongSupplier countQuery) {
+        if (!TransactionalCaches.isShareable()) {
+            return countQuery.getAsLong();
+        }
+
+        MemberSearchCondition key = condition.normalized();
+        Long total = cache.get(key);
+        if (total == null) {
+            long startedAt = currentGeneration();
+            total = countQuery.getAsLong();
+            synchronized (this) {
+                if (generation == startedAt) {
+                    cache.put(key, total);
+                }
+            }
+        }
+        return total;
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        cache.invalidateAll();
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    @EventListener
+    public void onBulkChange(MemberBulkChangedEvent event) {
+        invalidateAll();
+    }
+
+    @Override
+    public void afterCommit(EntityChange change) {
+        // 팀 이름 변경이나 회원의 팀/나이 변경도 필터 결과를 바꾸므로 insert/delete 외에 update 도 비운다.
+        if (change.isOf(Member.class) || change.isOf(Team.class)) {
+            invalidateAll();
+        }
+    }
+}
@@ -1,33 +1,46 @@
 package study.querydsl.repository;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.Member;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.QMember.member;
 import static study.querydsl.QTeam.team;
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberUsernameIndex usernameIndex;
+    private final MemberBatchLoader batchLoader;
 
-    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory) {
+    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory, MemberUsernameIndex usernameIndex,
+                               MemberBatchLoader batchLoader) {
         this.em = em;
         this.queryFactory = queryFactory;
+        this.usernameIndex = usernameIndex;
+        this.batchLoader = batchLoader;
     }
 
+    @Transactional
     public void save(Member member) {
         em.persist(member);
     }
@@ -37,6 +50,13 @@ public class MemberJpaRepository {
         return Optional.ofNullable(findMember);
     }
 
+    /**
+     * 여러 id 를 in 절 한 번으로 조회한다(팀 fetch join). id 마다 findById 를 반복하지 말고 이것을 쓴다. 없는 id 는 결과에 없다.
+     */
+    public Map<Long, Member> findAllById(Collection<Long> ids) {
+        return batchLoader.loadAll(ids);
+    }
+
     public List<Member> findAll() {
         return em.createQuery("select m from Member  m", Member.class).getResultList();
     }
@@ -80,6 +100,8 @@ public class MemberJpaRepository {
         if (condition.getAgeLoe() != null) {
             builder.and(member.age.goe(condition.getAgeLoe()));
         }
+
+        builder.and(usernameMatch(condition));
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -110,11 +132,48 @@ public class MemberJpaRepository {
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamname()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        ageLoe(condition.getAgeLoe()),
+                        usernameMatch(condition)
                 )
                 .fetch();
     }
 
+    /**
+     * search 와 같은 결과를 리스트로 모으지 않고 forward-only 커서로 한 건씩 넘긴다.
+     * fetchSize 건마다 영속성 컨텍스트를 비워 힙 사용량이 결과 크기와 무관하게 유지된다.
+     */
+    public void searchStream(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> consumer) {
+        try (CloseableIterator<MemberTeamDto> rows = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamname()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        usernameMatch(condition)
+                )
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .iterate()) {
+
+            int count = 0;
+            while (rows.hasNext()) {
+                consumer.accept(rows.next());
+                if (++count % fetchSize == 0) {
+                    em.clear();
+                }
+            }
+        }
+    }
+
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
@@ -130,4 +189,9 @@ public class MemberJpaRepository {
     private BooleanExpression ageLoe(Integer ageLoe) {
         return ageLoe != null ? member.age.loe(ageLoe) : null;
     }
+
+    private BooleanExpression usernameMatch(MemberSearchCondition condition) {
+        return usernameIndex.predicate(condition.getUsernamePrefix(), condition.getUsernameContains(),
+                MemberSearchQueries.MAX_INDEXED_IDS);
+    }
 }
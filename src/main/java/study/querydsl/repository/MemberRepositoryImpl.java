@@ -1,138 +1,207 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQuery;
-import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.support.PageableExecutionUtils;
-import study.querydsl.Member;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberKeysetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
-import study.querydsl.dto.QMemberTeamDto;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
 
-import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.QMember.member;
-import static study.querydsl.QTeam.team;
 
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
-    private final JPAQueryFactory queryFactory;
+    // 클라이언트가 보낸 정렬 속성을 그대로 경로로 쓰면 없는 속성은 쿼리 실행 중에 실패하고,
+    // team.name 같은 연관 경로는 암묵적 inner join 으로 팀 없는 회원을 빠뜨린다.
+    private static final Map<String, ComparableExpressionBase<?>> SORTABLE;
 
-    public MemberRepositoryImpl(JPAQueryFactory queryFactory) {
-        this.queryFactory = queryFactory;
+    static {
+        Map<String, ComparableExpressionBase<?>> sortable = new LinkedHashMap<>();
+        sortable.put("id", member.id);
+        sortable.put("username", member.username);
+        sortable.put("age", member.age);
+        SORTABLE = Collections.unmodifiableMap(sortable);
+    }
+
+    private final MemberSearchQueries queries;
+    private final MemberCountCache countCache;
+    private final ParallelCountExecutor parallelCount;
+    private final MemberSearchCache searchCache;
+
+    public MemberRepositoryImpl(MemberSearchQueries queries, MemberCountCache countCache,
+                                ParallelCountExecutor parallelCount, MemberSearchCache searchCache) {
+        this.queries = queries;
+        this.countCache = countCache;
+        this.parallelCount = parallelCount;
+        this.searchCache = searchCache;
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition){
-
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamname()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+        return searchCache.get(condition, Pageable.unpaged(),
+                () -> Collections.unmodifiableList(queries.fetch(condition, Pageable.unpaged())));
     }
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return searchCache.get(condition, pageable, () -> loadPageSimple(condition, pageable));
+    }
 
-        QueryResults<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamname()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();
-
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
+    private Page<MemberTeamDto> loadPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        // fetchResults 와 같은 순서: count 먼저, 해당 범위에 데이터가 있을 때만 content 조회
+        long total = queries.fetchCount(condition);
+        List<MemberTeamDto> content = total > pageable.getOffset()
+                ? pagedContent(condition, pageable)
+                : Collections.emptyList();
 
         return new PageImpl<>(content, pageable, total);
     }
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> contents = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamname()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
+        return searchCache.get(condition, pageable, () -> loadPageComplex(condition, pageable));
+    }
+
+    private Page<MemberTeamDto> loadPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        LongSupplier countQuery = () -> countCache.count(condition, () -> queries.fetchCount(condition));
+
+        // 설정이 켜져 있으면 count 를 다른 커넥션에서 먼저 시작하고 content 는 현재 트랜잭션에서 조회한다.
+        Future<Long> total = parallelCount.submit(countQuery);
+        List<MemberTeamDto> contents = pagedContent(condition, pageable);
 //최적화를 위해서는 따로 쿼리를 작성해야 한다.
-        JPAQuery<Member> countQuery = queryFactory
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamname()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
-
-
-        return PageableExecutionUtils.getPage(contents, pageable, countQuery::fetchCount);
-//        return new PageImpl<>(contents, pageable, total);
+        if (total == null) {
+            return PageableExecutionUtils.getPage(contents, pageable, countQuery);
+        }
+        try {
+            return PageableExecutionUtils.getPage(contents, pageable, () -> parallelCount.await(total, countQuery));
+        } finally {
+            // content 만으로 total 을 알 수 있어서 count 를 쓰지 않은 경우
+            total.cancel(true);
+        }
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
+    /**
+     * 전체 건수가 필요 없는 무한 스크롤용. count 없이 size + 1 건을 읽어 다음 페이지 여부만 판단한다.
+     */
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> rows = queries.content(condition)
+                .orderBy(sliceOrder(pageable.getSort()))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1)
+                .fetch();
+
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<MemberTeamDto> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+        return new SliceImpl<>(content, pageable, hasNext);
     }
 
-    private BooleanExpression teamNameEq(String teamname) {
-        return  hasText(teamname) ? team.name.eq(teamname) : null;
+    /**
+     * pageable 의 정렬을 적용하고 마지막에 id 를 붙인다.
+     * 순서가 정해지지 않으면 DB 가 페이지마다 다른 순서를 돌려줄 수 있어 행이 빠지거나 겹친다.
+     * 정렬할 수 있는 속성은 {@link #SORTABLE} 뿐이고, 그 밖의 속성은 IllegalArgumentException.
+     */
+    private OrderSpecifier<?>[] sliceOrder(Sort sort) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        boolean byId = false;
+        for (Sort.Order order : sort) {
+            ComparableExpressionBase<?> property = SORTABLE.get(order.getProperty());
+            if (property == null) {
+                throw new IllegalArgumentException("cannot sort by " + order.getProperty() + ", sortable: " + SORTABLE.keySet());
+            }
+            orders.add(order.isAscending() ? property.asc() : property.desc());
+            byId |= property == member.id;
+        }
+        if (!byId) {
+            orders.add(member.id.asc());
+        }
+        return orders.toArray(new OrderSpecifier<?>[0]);
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    private List<MemberTeamDto> pagedContent(MemberSearchCondition condition, Pageable pageable) {
+        return queries.fetch(condition, pageable);
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    @Override
+    public MemberKeysetPage searchKeyset(MemberSearchCondition condition, MemberCursor.SortKey sortKey, MemberCursor after, int size) {
+        // 커서가 있으면 커서를 만들 때의 정렬 키를 그대로 따른다.
+        MemberCursor.SortKey key = after != null ? after.getSortKey() : sortKey;
+
+        // offset 대신 마지막으로 본 (정렬 키, id) 다음부터 찾는다. hasNext 판단을 위해 한 건 더 조회.
+        List<MemberTeamDto> rows = queries.content(condition)
+                .where(seekAfter(after))
+                .orderBy(keysetOrder(key))
+                .limit(size + 1)
+                .fetch();
+
+        boolean hasNext = rows.size() > size;
+        List<MemberTeamDto> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? MemberCursor.after(key, content.get(content.size() - 1)).encode() : null;
+
+        return new MemberKeysetPage(content, hasNext, nextCursor);
     }
 
+    /**
+     * 여러 조건을 쿼리 한 번으로 조회하고 결과를 조건별로 나눠 돌려준다(입력 순서 그대로).
+     * 조건별 결과는 목록 검색({@link #search})과 같은 키로 결과 캐시에 들어간다.
+     * 캐시에 없는 조건만 모아 한 번에 읽는다. stale 항목의 백그라운드 갱신은 그 조건 하나만 다시 읽는다.
+     */
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions) {
+        if (conditions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<MemberSearchCondition> normalized = new ArrayList<>(conditions.size());
+        for (MemberSearchCondition condition : conditions) {
+            normalized.add(condition.normalized());
+        }
+        List<MemberSearchCondition> distinct = new ArrayList<>(new LinkedHashSet<>(normalized));
+
+        Map<MemberSearchCondition, List<MemberTeamDto>> results = searchCache.getAll(distinct,
+                condition -> () -> queries.batch(Collections.singletonList(condition)).get(condition),
+                queries::batch);
+
+        List<List<MemberTeamDto>> result = new ArrayList<>(normalized.size());
+        for (MemberSearchCondition condition : normalized) {
+            result.add(results.get(condition));
+        }
+        return result;
+    }
 
+    private BooleanExpression seekAfter(MemberCursor after) {
+        if (after == null) {
+            return null;
+        }
+        if (after.getSortKey() == MemberCursor.SortKey.AGE) {
+            return member.age.gt(after.getAge())
+                    .or(member.age.eq(after.getAge()).and(member.id.gt(after.getMemberId())));
+        }
+        return member.id.gt(after.getMemberId());
+    }
 
+    private OrderSpecifier<?>[] keysetOrder(MemberCursor.SortKey key) {
+        if (key == MemberCursor.SortKey.AGE) {
+            return new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+        }
+        return new OrderSpecifier<?>[]{member.id.asc()};
+    }
 }
@@ -0,0 +1,365 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Member;
+import study.querydsl.Team;
+import study.querydsl.cache.BoundedTtlCache;
+import study.querydsl.cache.SingleFlight;
+import study.querydsl.cache.TransactionalCaches;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.EntityChange;
+import study.querydsl.event.EntityChangeListener;
+import study.querydsl.event.MemberBulkChangedEvent;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 검색 결과(목록, 페이지)를 조건 + pageable 로 캐시한다.
+ * ttl 이 지나도 stale 구간 안이면 이전 결과를 바로 돌려주고 백그라운드에서 다시 읽는다(stale-while-revalidate).
+ *
+ * Member 변경이 커밋되면 변경 전/후 상태가 조건에 걸릴 수 있는 항목만 지운다.
+ * 결과에 팀 이름이 들어가므로 Team 수정/삭제는 전체를 지운다.
+ * 조회 중에 무효화가 일어나면 그 조회 결과는 넣지 않는다(generation 비교).
+ *
+ * 캐시에 없는 같은 조건의 동시 요청은 하나의 조회로 합친다(single-flight).
+ * 합치는 키에 generation 을 넣어서, 무효화 뒤에 들어온 요청이 그 전에 시작된 조회 결과를 받지 않게 한다.
+ */
+@Slf4j
+@Component
+public class MemberSearchCache implements EntityChangeListener {
+
+    private final boolean enabled;
+    private final long freshNanos;
+    private final BoundedTtlCache<Key, Cached> cache;
+    private final SingleFlight<Flight, Object> singleFlight;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolTaskExecutor refresher;
+
+    // 무효화가 일어날 때마다 증가. 조회 시작 시점 값과 다르면 결과를 넣지 않는다.
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MemberSearchCache(PlatformTransactionManager transactionManager, MeterRegistry registry,
+                             @Value("${querydsl.search.result-cache.enabled:true}") boolean enabled,
+                             @Value("${querydsl.search.result-cache.max-size:1000}") int maxSize,
+                             @Value("${querydsl.search.result-cache.ttl-seconds:30}") long ttlSeconds,
+                             @Value("${querydsl.search.result-cache.stale-seconds:30}") long staleSeconds,
+                             @Value("${querydsl.search.result-cache.refresh-threads:2}") int refreshThreads,
+                             @Value("${querydsl.search.result-cache.coalesce-timeout-millis:3000}") long coalesceTimeoutMillis) {
+        this.enabled = enabled;
+        this.freshNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        // 항목은 ttl + stale 구간 동안 남아 있고, fresh 여부는 loadedAt 으로 따로 판단한다.
+        this.cache = new BoundedTtlCache<>(maxSize, ttlSeconds + staleSeconds, TimeUnit.SECONDS);
+        this.singleFlight = new SingleFlight<>(coalesceTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.refresher = new ThreadPoolTaskExecutor();
+        this.refresher.setCorePoolSize(refreshThreads);
+        this.refresher.setMaxPoolSize(refreshThreads);
+        this.refresher.setQueueCapacity(100);
+        this.refresher.setThreadNamePrefix("search-refresh-");
+        this.refresher.initialize();
+
+        FunctionCounter.builder("member.search.cache", hits, LongAdder::sum).tag("result", "hit").register(registry);
+        FunctionCounter.builder("member.search.cache", staleHits, LongAdder::sum).tag("result", "stale").register(registry);
+        FunctionCounter.builder("member.search.cache", misses, LongAdder::sum).tag("result", "miss").register(registry);
+        Gauge.builder("member.search.cache.hit.ratio", this, MemberSearchCache::hitRatio).register(registry);
+        Gauge.builder("member.search.cache.size", cache, BoundedTtlCache::size).register(registry);
+        FunctionCounter.builder("member.search.singleflight.saved", singleFlight, SingleFlight::sharedCount)
+                .description("searches served from another in-flight query instead of the database")
+                .register(registry);
+        FunctionCounter.builder("member.search.singleflight.timeouts", singleFlight, SingleFlight::timeoutCount)
+                .register(registry);
+        Gauge.builder("member.search.singleflight.inflight", singleFlight, SingleFlight::inFlightCount).register(registry);
+    }
+
+    /**
+     * 목록 검색은 pageable 에 {@link Pageable#unpaged()} 를 넘긴다.
+     * 돌려준 값은 여러 호출자가 공유하므로 loader 는 수정할 수 없는 값을 만들어야 한다.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(MemberSearchCondition condition, Pageable pageable, Supplier<T> loader) {
+        if (!TransactionalCaches.isShareable()) {
+            return loader.get();
+        }
+
+        Key key = new Key(condition.normalized(), pageable);
+        Cached cached = lookup(key, loader);
+        if (cached == null) {
+            return (T) singleFlight.execute(new Flight(key, currentGeneration()), () -> load(key, loader));
+        }
+        return (T) cached.value;
+    }
+
+    /**
+     * 여러 조건의 목록 검색을 캐시에서 찾고, 없는 조건만 모아 batchLoader 로 한 번에 읽어 넣는다.
+     * stale 항목의 백그라운드 갱신은 조건 하나만 다시 읽는 loader 로 한다. batchLoader 는 호출한 스레드에서만 돈다.
+     * 돌려주는 맵의 키는 넘겨받은 조건 그대로다.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<MemberSearchCondition, T> getAll(List<MemberSearchCondition> conditions,
+                                                    Function<MemberSearchCondition, Supplier<T>> loader,
+                                                    Function<List<MemberSearchCondition>, Map<MemberSearchCondition, T>> batchLoader) {
+        if (!TransactionalCaches.isShareable()) {
+            return batchLoader.apply(conditions);
+        }
+
+        Map<MemberSearchCondition, T> result = new HashMap<>();
+        List<MemberSearchCondition> missed = new ArrayList<>();
+        for (MemberSearchCondition condition : conditions) {
+            Cached cached = lookup(new Key(condition.normalized(), Pageable.unpaged()), loader.apply(condition));
+            if (cached == null) {
+                missed.add(condition);
+            } else {
+                result.put(condition, (T) cached.value);
+            }
+        }
+        if (missed.isEmpty()) {
+            return result;
+        }
+
+        long startedAt = currentGeneration();
+        Map<MemberSearchCondition, T> loaded = batchLoader.apply(missed);
+        synchronized (this) {
+            if (enabled && generation == startedAt) {
+                loaded.forEach((condition, value) -> cache.put(new Key(condition.normalized(), Pageable.unpaged()), new Cached(value)));
+            }
+        }
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * 캐시 항목을 찾아 hit/stale/miss 를 센다. stale 이면 loader 로 백그라운드 갱신을 건다. 없으면 null.
+     */
+    private Cached lookup(Key key, Supplier<?> loader) {
+        Cached cached = enabled ? cache.get(key) : null;
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - cached.loadedAt < freshNanos) {
+            hits.increment();
+        } else {
+            staleHits.increment();
+            refreshAsync(key, cached, loader);
+        }
+        return cached;
+    }
+
+    private <T> T load(Key key, Supplier<T> loader) {
+        long startedAt = currentGeneration();
+        T value = loader.get();
+        synchronized (this) {
+            if (enabled && generation == startedAt) {
+                cache.put(key, new Cached(value));
+            }
+        }
+        return value;
+    }
+
+    private void refreshAsync(Key key, Cached cached, Supplier<?> loader) {
+        if (!cached.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    readOnlyTransaction.execute(status -> load(key, loader));
+                } catch (RuntimeException e) {
+                    log.warn("search cache refresh failed for {}", key.condition, e);
+                } finally {
+                    cached.refreshing.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            cached.refreshing.set(false);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (this) {
+            generation++;
+            cache.invalidateAll();
+        }
+    }
+
+    @EventListener
+    public void onBulkChange(MemberBulkChangedEvent event) {
+        invalidateAll();
+    }
+
+    @Override
+    public void afterCommit(EntityChange change) {
+        if (change.isOf(Team.class)) {
+            // 새 팀에는 아직 회원이 없으므로 insert 는 결과를 바꾸지 않는다.
+            if (change.getType() != EntityChange.Type.INSERT) {
+                invalidateAll();
+            }
+            return;
+        }
+        if (!change.isOf(Member.class)) {
+            return;
+        }
+        if (change.getType() == EntityChange.Type.UPDATE && change.getOldState() == null) {
+            // detached 엔티티 merge 등으로 변경 전 상태를 모르면 전부 지운다.
+            invalidateAll();
+            return;
+        }
+        MemberState after = change.getState() != null
+                ? new MemberState(change.getState("username"), change.getState("age"), change.getState("team")) : null;
+        MemberState before = change.getOldState() != null
+                ? new MemberState(change.getOldState("username"), change.getOldState("age"), change.getOldState("team")) : null;
+        synchronized (this) {
+            generation++;
+            cache.invalidateIf(key -> after != null && after.mayMatch(key.condition)
+                    || before != null && before.mayMatch(key.condition));
+        }
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    private double hitRatio() {
+        long hit = hits.sum() + staleHits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdown();
+    }
+
+    private static final class Key {
+        private final MemberSearchCondition condition;
+        private final Pageable pageable;
+
+        private Key(MemberSearchCondition condition, Pageable pageable) {
+            this.condition = condition;
+            this.pageable = pageable;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return condition.equals(other.condition) && pageable.equals(other.pageable);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(condition, pageable);
+        }
+    }
+
+    private static final class Flight {
+        private final Key key;
+        private final long generation;
+
+        private Flight(Key key, long generation) {
+            this.key = key;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Flight)) {
+                return false;
+            }
+            Flight other = (Flight) o;
+            return generation == other.generation && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + Long.hashCode(generation);
+        }
+    }
+
+    private static final class Cached {
+        private final Object value;
+        private final long loadedAt = System.nanoTime();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Cached(Object value) {
+            this.value = value;
+        }
+    }
+
+    private static final class MemberState {
+        private final String username;
+        private final Integer age;
+        private final Object team;
+
+        private MemberState(Object username, Object age, Object team) {
+            this.username = (String) username;
+            this.age = (Integer) age;
+            this.team = team;
+        }
+
+        private boolean mayMatch(MemberSearchCondition condition) {
+            if (condition.getUsername() != null && !condition.getUsername().equals(username)) {
+                return false;
+            }
+            if (condition.getUsernamePrefix() != null && (username == null || !username.startsWith(condition.getUsernamePrefix()))) {
+                return false;
+            }
+            if (condition.getUsernameContains() != null && (username == null || !username.contains(condition.getUsernameContains()))) {
+                return false;
+            }
+            if (condition.getAgeGoe() != null && (age == null || age < condition.getAgeGoe())) {
+                return false;
+            }
+            if (condition.getAgeLoe() != null && (age == null || age > condition.getAgeLoe())) {
+                return false;
+            }
+            if (condition.getTeamname() != null) {
+                if (team == null) {
+                    return false;
+                }
+                // 초기화되지 않은 프록시면 팀 이름을 읽지 않고 걸린다고 본다.
+                if (Hibernate.isInitialized(team)) {
+                    return condition.getTeamname().equals(((Team) Hibernate.unproxy(team)).getName());
+                }
+            }
+            return true;
+        }
+    }
+}
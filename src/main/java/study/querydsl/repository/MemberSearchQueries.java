@@ -0,0 +1,343 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.QMember.member;
+import static study.querydsl.QTeam.team;
+
+/**
+ * 회원 검색(목록/페이지/슬라이스/keyset)이 같이 쓰는 Querydsl content/count 쿼리와 검색 조건.
+ *
+ * 목록/페이지 검색({@link #fetch}, {@link #fetchCount})은 조건의 "모양"(username/teamname/ageGoe/ageLoe 중 무엇이 채워졌는지)별로
+ * Querydsl 이 만든 JPQL 과 projection 을 한 번만 만들어 두고, 요청마다 파라미터만 바인딩한다.
+ * 표현식 트리를 다시 만들거나 JPQL 을 다시 직렬화하지 않는다. 정의는 {@link #content}/{@link #count} 하나뿐이다.
+ *
+ * username 접두어/부분 문자열 조건은 {@link MemberUsernameIndex} 로 회원 id 를 먼저 찾아 id in 으로 바꾼다.
+ */
+@Component
+public class MemberSearchQueries {
+
+    // in 절로 넘길 최대 id 수. 넘으면 like 로 조회한다.
+    static final int MAX_INDEXED_IDS = 1000;
+
+    // case when 태그 값. 파라미터가 아닌 리터럴로 써야 select 절에서 타입을 정할 수 있다.
+    private static final Expression<Integer> MATCHED = Expressions.numberTemplate(Integer.class, "1");
+    private static final Expression<Integer> NOT_MATCHED = Expressions.numberTemplate(Integer.class, "0");
+
+    private static final int USERNAME = 1;
+    private static final int TEAMNAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+    private static final int SHAPES = 1 << 4;
+
+    // 템플릿을 만들 때 쓰는 자리표시 값. 서로 달라야 Querydsl 이 각각 다른 ?n 으로 직렬화한다.
+    private static final String USERNAME_PLACEHOLDER = "{username}";
+    private static final String TEAMNAME_PLACEHOLDER = "{teamname}";
+    private static final int AGE_GOE_PLACEHOLDER = Integer.MIN_VALUE;
+    private static final int AGE_LOE_PLACEHOLDER = Integer.MAX_VALUE;
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final MemberUsernameIndex usernameIndex;
+    private final AtomicReferenceArray<Template> templates = new AtomicReferenceArray<>(SHAPES);
+
+    public MemberSearchQueries(EntityManager em, JPAQueryFactory queryFactory, MemberUsernameIndex usernameIndex) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.usernameIndex = usernameIndex;
+    }
+
+    /**
+     * {@link #content} 결과를 pageable 범위만큼 읽는다. 목록 검색은 {@link Pageable#unpaged()}.
+     */
+    public List<MemberTeamDto> fetch(MemberSearchCondition condition, Pageable pageable) {
+        Template template = templateOf(condition);
+        if (template == null) {
+            JPAQuery<MemberTeamDto> query = content(condition);
+            if (pageable.isPaged()) {
+                query.offset(pageable.getOffset()).limit(pageable.getPageSize());
+            }
+            return query.fetch();
+        }
+
+        Query query = bind(em.createQuery(template.content), condition);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<?> rows = query.getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(template.projection.newInstance((Object[]) row));
+        }
+        return result;
+    }
+
+    public long fetchCount(MemberSearchCondition condition) {
+        Template template = templateOf(condition);
+        if (template == null) {
+            return count(condition).fetchOne();
+        }
+        return (Long) bind(em.createQuery(template.count), condition).getSingleResult();
+    }
+
+    /**
+     * username 접두어/부분 문자열 조건은 인덱스 결과(id 목록)에 따라 쿼리가 달라지므로 템플릿을 쓰지 않는다(null).
+     */
+    private Template templateOf(MemberSearchCondition condition) {
+        if (hasText(condition.getUsernamePrefix()) || hasText(condition.getUsernameContains())) {
+            return null;
+        }
+        int shape = shapeOf(condition);
+        Template template = templates.get(shape);
+        if (template == null) {
+            // 같은 모양을 동시에 만들어도 결과가 같으므로 먼저 들어간 것을 쓴다.
+            templates.compareAndSet(shape, null, build(shape));
+            template = templates.get(shape);
+        }
+        return template;
+    }
+
+    private static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (hasText(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (hasText(condition.getTeamname())) {
+            shape |= TEAMNAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+
+    /**
+     * 자리표시 값으로 채운 조건으로 content/count 를 만들어 직렬화한다.
+     * {@link #predicates} 순서(username, teamname, ageGoe, ageLoe)대로 ?1, ?2 ... 가 붙는다.
+     */
+    private Template build(int shape) {
+        MemberSearchCondition placeholders = new MemberSearchCondition(
+                (shape & USERNAME) != 0 ? USERNAME_PLACEHOLDER : null,
+                (shape & TEAMNAME) != 0 ? TEAMNAME_PLACEHOLDER : null,
+                (shape & AGE_GOE) != 0 ? AGE_GOE_PLACEHOLDER : null,
+                (shape & AGE_LOE) != 0 ? AGE_LOE_PLACEHOLDER : null);
+        int parameters = Integer.bitCount(shape);
+
+        JPAQuery<MemberTeamDto> content = content(placeholders);
+        return new Template(
+                checkParameters(content.toString(), parameters),
+                checkParameters(count(placeholders).toString(), parameters),
+                (QMemberTeamDto) content.getMetadata().getProjection());
+    }
+
+    private static String checkParameters(String jpql, int parameters) {
+        if ((parameters > 0 && !jpql.contains("?" + parameters)) || jpql.contains("?" + (parameters + 1))) {
+            throw new IllegalStateException("unexpected parameters in member search template: " + jpql);
+        }
+        return jpql;
+    }
+
+    private static Query bind(Query query, MemberSearchCondition condition) {
+        int position = 1;
+        if (hasText(condition.getUsername())) {
+            query.setParameter(position++, condition.getUsername());
+        }
+        if (hasText(condition.getTeamname())) {
+            query.setParameter(position++, condition.getTeamname());
+        }
+        if (condition.getAgeGoe() != null) {
+            query.setParameter(position++, condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            query.setParameter(position, condition.getAgeLoe());
+        }
+        return query;
+    }
+
+    public JPAQuery<MemberTeamDto> content(MemberSearchCondition condition) {
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(projection())
+                .from(member);
+        // 팀 이름 조건이 있으면 팀이 없는 회원은 어차피 걸러지므로 inner join 으로 바꾼다.
+        // 그래야 DB 가 team.name 인덱스에서 출발해 member.team_id 인덱스로 조인 순서를 정할 수 있다.
+        if (hasText(condition.getTeamname())) {
+            query.join(member.team, team);
+        } else {
+            query.leftJoin(member.team, team);
+        }
+        return query.where(predicates(condition));
+    }
+
+    public JPAQuery<Long> count(MemberSearchCondition condition) {
+        JPAQuery<Long> query = queryFactory
+                .select(member.count())
+                .from(member);
+        // left join 한 팀은 건수를 바꾸지 않으므로 팀 이름 조건이 있을 때만 조인한다.
+        if (hasText(condition.getTeamname())) {
+            query.join(member.team, team);
+        }
+        return query.where(predicates(condition));
+    }
+
+    /**
+     * 여러 검색 조건의 결과를 쿼리 한 번으로 읽어 조건별로 돌려준다(id 순).
+     * username 만 다른 조건은 username in (...) 으로 합치고 나머지는 or 로 묶는다.
+     * 각 행이 어느 조건에 걸렸는지는 조건마다 붙인 case when 태그 컬럼으로 DB 가 같은 조건식으로 판단한다.
+     * 조건이 하나도 없는 검색은 모든 행에 걸리므로 태그를 붙이지 않는다.
+     */
+    public Map<MemberSearchCondition, List<MemberTeamDto>> batch(Collection<MemberSearchCondition> conditions) {
+        List<MemberSearchCondition> distinct = new ArrayList<>(new LinkedHashSet<>(conditions));
+
+        QMemberTeamDto projection = projection();
+        List<Expression<?>> select = new ArrayList<>(distinct.size() + 1);
+        select.add(projection);
+        List<Expression<Integer>> tags = new ArrayList<>(distinct.size());
+        for (MemberSearchCondition condition : distinct) {
+            Predicate matches = ExpressionUtils.allOf(predicates(condition));
+            Expression<Integer> tag = matches == null ? null : new CaseBuilder().when(matches).then(MATCHED).otherwise(NOT_MATCHED);
+            tags.add(tag);
+            if (tag != null) {
+                select.add(tag);
+            }
+        }
+
+        List<Tuple> rows = queryFactory
+                .select(select.toArray(new Expression<?>[0]))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(mergedPredicate(distinct))
+                .orderBy(member.id.asc())
+                .fetch();
+
+        List<List<MemberTeamDto>> matched = new ArrayList<>(distinct.size());
+        distinct.forEach(condition -> matched.add(new ArrayList<>()));
+        for (Tuple row : rows) {
+            MemberTeamDto dto = row.get(projection);
+            for (int i = 0; i < tags.size(); i++) {
+                Expression<Integer> tag = tags.get(i);
+                if (tag == null || Integer.valueOf(1).equals(row.get(tag))) {
+                    matched.get(i).add(dto);
+                }
+            }
+        }
+
+        Map<MemberSearchCondition, List<MemberTeamDto>> result = new LinkedHashMap<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            result.put(distinct.get(i), Collections.unmodifiableList(matched.get(i)));
+        }
+        return result;
+    }
+
+    private BooleanBuilder mergedPredicate(List<MemberSearchCondition> conditions) {
+        // username 을 뺀 나머지 조건이 같은 것끼리 모은다. 그중 하나라도 username 이 없으면 나머지 조건만으로 충분하다(null).
+        Map<MemberSearchCondition, List<String>> groups = new LinkedHashMap<>();
+        for (MemberSearchCondition condition : conditions) {
+            MemberSearchCondition rest = condition.normalized();
+            rest.setUsername(null);
+            if (!groups.containsKey(rest)) {
+                groups.put(rest, new ArrayList<>());
+            }
+            List<String> usernames = groups.get(rest);
+            if (usernames == null) {
+                continue;
+            }
+            if (condition.getUsername() == null) {
+                groups.put(rest, null);
+            } else {
+                usernames.add(condition.getUsername());
+            }
+        }
+
+        BooleanBuilder where = new BooleanBuilder();
+        for (Map.Entry<MemberSearchCondition, List<String>> group : groups.entrySet()) {
+            List<String> usernames = group.getValue();
+            BooleanBuilder predicate = new BooleanBuilder()
+                    .and(usernames != null ? member.username.in(usernames) : null)
+                    .and(ExpressionUtils.allOf(predicates(group.getKey())));
+            if (!predicate.hasValue()) {
+                // 조건이 하나도 없는 검색이 섞여 있으면 전체를 읽어야 한다.
+                return new BooleanBuilder();
+            }
+            where.or(predicate);
+        }
+        return where;
+    }
+
+    public Predicate[] predicates(MemberSearchCondition condition) {
+        return new Predicate[]{
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamname()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()),
+                usernameIndex.predicate(condition.getUsernamePrefix(), condition.getUsernameContains(), MAX_INDEXED_IDS)
+        };
+    }
+
+    private static final class Template {
+        private final String content;
+        private final String count;
+        private final QMemberTeamDto projection;
+
+        private Template(String content, String count, QMemberTeamDto projection) {
+            this.content = content;
+            this.count = count;
+            this.projection = projection;
+        }
+    }
+
+    private static QMemberTeamDto projection() {
+        return new QMemberTeamDto(
+                member.id.as("memberId"),
+                member.username,
+                member.age,
+                team.id.as("teamId"),
+                team.name.as("teamName")
+        );
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamname) {
+        return hasText(teamname) ? team.name.eq(teamname) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
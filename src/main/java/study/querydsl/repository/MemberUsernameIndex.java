@@ -0,0 +1,314 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Member;
+import study.querydsl.cache.CoalescingTask;
+import study.querydsl.cache.TransactionalCaches;
+import study.querydsl.event.EntityChange;
+import study.querydsl.event.EntityChangeListener;
+import study.querydsl.event.MemberBulkChangedEvent;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.QMember.member;
+
+/**
+ * username 접두어/부분 문자열 검색용 인메모리 인덱스. like '%..%' 로 member 전체를 훑지 않고 회원 id 를 먼저 찾는다.
+ * 접두어는 정렬된 username 맵을, 부분 문자열은 3-gram 역색인의 교집합을 후보로 삼아 실제 포함 여부를 확인한다.
+ * (3자 미만 부분 문자열은 username 전체를 메모리에서 확인한다.)
+ *
+ * 기동 시 전체를 읽고, 이후에는 Member 변경이 커밋될 때마다 반영한다. 대소문자를 구분한다.
+ * 다시 만드는 동안 커밋된 변경은 모아 두었다가 새 인덱스에 다시 적용한 뒤 바꿔 끼운다.
+ * 회원 id 별 upsert/remove 라서 읽은 결과에 이미 들어간 변경을 다시 적용해도 결과가 같다.
+ * JPQL 벌크 연산 뒤의 재구축은 이벤트를 발행한 스레드가 아니라 전용 스레드에서 한다.
+ */
+@Slf4j
+@Component
+public class MemberUsernameIndex implements EntityChangeListener {
+
+    private static final int GRAM = 3;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final CoalescingTask rebuilder = new CoalescingTask("username-index-rebuild", this::rebuild);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // lock 으로 보호
+    private Index index = new Index();
+    private boolean built;
+    private List<EntityChange> pending;
+
+    public MemberUsernameIndex(PlatformTransactionManager transactionManager) {
+        // 호출한 쪽 트랜잭션의 커밋되지 않은 변경을 읽지 않도록 항상 새 트랜잭션에서 읽는다.
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // 읽는 동안에는 이전 인덱스로 검색하고 커밋도 막지 않는다.
+        Index loaded = new Index();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> load(loaded));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            replayed = pending.size();
+            pending.forEach(loaded::apply);
+            pending = null;
+            index = loaded;
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("username index built for {} members in {} ms ({} changes replayed)",
+                loaded.usernames.size(), System.currentTimeMillis() - start, replayed);
+    }
+
+    private void load(Index target) {
+        try (Stream<Object[]> rows = em.createQuery("select m.id, m.username from Member m where m.username is not null", Object[].class)
+                .setHint(QueryHints.FETCH_SIZE, 1000)
+                .getResultStream()) {
+            rows.forEach(row -> target.put((Long) row[0], (String) row[1]));
+        }
+    }
+
+    @EventListener
+    public void onBulkChange(MemberBulkChangedEvent event) {
+        rebuilder.request();
+    }
+
+    /**
+     * 요청된 rebuild 가 끝날 때까지 기다린다(테스트용).
+     */
+    boolean awaitRebuild(long timeout, TimeUnit unit) throws InterruptedException {
+        return rebuilder.awaitIdle(timeout, unit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdown();
+    }
+
+    @Override
+    public void afterCommit(EntityChange change) {
+        if (!change.isOf(Member.class)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            } else if (built) {
+                // 첫 빌드 전의 커밋은 빌드가 읽는다.
+                index.apply(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 검색 경로에서 쓰는 조회. 인덱스로 답할 수 없으면 null 을 돌려주고 호출자는 SQL like 로 대신한다.
+     * 준비 전이거나, 쓰기 트랜잭션 안이라 커밋 전 변경이 인덱스에 없거나, 결과가 limit 건을 넘는 경우다.
+     */
+    public Set<Long> lookup(String prefix, String contains, int limit) {
+        if (!TransactionalCaches.isShareable()) {
+            return null;
+        }
+        return findIds(prefix, contains, limit);
+    }
+
+    /**
+     * prefix 와 contains 를 모두 만족하는 회원 id (빈 값인 조건은 무시). 준비 전이거나 limit 건을 넘으면 null.
+     */
+    public Set<Long> findIds(String prefix, String contains, int limit) {
+        lock.readLock().lock();
+        try {
+            if (!built) {
+                return null;
+            }
+            Set<Long> ids = hasText(prefix) ? byPrefix(prefix, limit) : null;
+            if (hasText(contains) && (ids == null || !ids.isEmpty())) {
+                ids = byContains(contains, ids, limit);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Querydsl 검색 경로용 조건. 인덱스를 쓸 수 없으면 like 로 대신한다.
+     */
+    public BooleanExpression predicate(String prefix, String contains, int limit) {
+        if (!hasText(prefix) && !hasText(contains)) {
+            return null;
+        }
+        Set<Long> ids = lookup(prefix, contains, limit);
+        if (ids == null) {
+            BooleanExpression startsWith = hasText(prefix) ? member.username.startsWith(prefix) : null;
+            BooleanExpression like = hasText(contains) ? member.username.contains(contains) : null;
+            return startsWith == null ? like : startsWith.and(like);
+        }
+        return ids.isEmpty() ? Expressions.FALSE.isTrue() : member.id.in(ids);
+    }
+
+    private Set<Long> byPrefix(String prefix, int limit) {
+        Set<Long> ids = new TreeSet<>();
+        for (Map.Entry<String, Set<Long>> entry : index.byUsername.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            ids.addAll(entry.getValue());
+            if (ids.size() > limit) {
+                return null;
+            }
+        }
+        return ids;
+    }
+
+    private Set<Long> byContains(String contains, Set<Long> within, int limit) {
+        Iterable<Long> candidates = within != null ? within : candidatesOf(contains);
+        Set<Long> ids = new TreeSet<>();
+        for (Long id : candidates) {
+            if (index.usernames.get(id).contains(contains)) {
+                ids.add(id);
+                if (ids.size() > limit) {
+                    return null;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private Iterable<Long> candidatesOf(String contains) {
+        if (contains.length() < GRAM) {
+            return index.usernames.keySet();
+        }
+        // 가장 작은 posting 에서 출발해 나머지 3-gram 에 모두 들어 있는 id 만 남긴다.
+        Set<String> grams = gramsOf(contains);
+        Set<Long> smallest = null;
+        for (String gram : grams) {
+            Set<Long> posting = index.trigrams.get(gram);
+            if (posting == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        Set<Long> result = new HashSet<>();
+        for (Long id : smallest) {
+            boolean all = true;
+            for (String gram : grams) {
+                if (!index.trigrams.get(gram).contains(id)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> gramsOf(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static final class Index {
+        private final Map<Long, String> usernames = new HashMap<>();
+        private final NavigableMap<String, Set<Long>> byUsername = new TreeMap<>();
+        private final Map<String, Set<Long>> trigrams = new HashMap<>();
+
+        private void apply(EntityChange change) {
+            Long memberId = (Long) change.getId();
+            remove(memberId);
+            if (change.getType() != EntityChange.Type.DELETE) {
+                String username = (String) change.getState("username");
+                if (username != null) {
+                    put(memberId, username);
+                }
+            }
+        }
+
+        private void put(Long memberId, String username) {
+            usernames.put(memberId, username);
+            byUsername.computeIfAbsent(username, k -> new HashSet<>()).add(memberId);
+            for (String gram : gramsOf(username)) {
+                trigrams.computeIfAbsent(gram, k -> new HashSet<>()).add(memberId);
+            }
+        }
+
+        private void remove(Long memberId) {
+            String previous = usernames.remove(memberId);
+            if (previous == null) {
+                return;
+            }
+            removeFrom(byUsername, previous, memberId);
+            for (String gram : gramsOf(previous)) {
+                removeFrom(trigrams, gram, memberId);
+            }
+        }
+
+        private static void removeFrom(Map<String, Set<Long>> postings, String key, Long memberId) {
+            postings.computeIfPresent(key, (k, ids) -> {
+                ids.remove(memberId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+}
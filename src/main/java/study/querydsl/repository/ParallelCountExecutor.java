@@ -0,0 +1,105 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * 페이징 count 쿼리를 별도 스레드/커넥션의 읽기 전용 트랜잭션에서 돌려서 content 쿼리와 동시에 실행한다.
+ * querydsl.search.parallel-count.enabled=true 일 때만 동작한다.
+ * count 스레드도 커넥션을 하나씩 잡으므로 스레드 수는 Hikari 풀 크기의 절반을 넘지 않게 줄인다.
+ */
+@Slf4j
+@Component
+public class ParallelCountExecutor {
+
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final ThreadPoolTaskExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ParallelCountExecutor(PlatformTransactionManager transactionManager,
+                                 @Value("${querydsl.search.parallel-count.enabled:false}") boolean enabled,
+                                 @Value("${querydsl.search.parallel-count.threads:8}") int threads,
+                                 @Value("${querydsl.search.parallel-count.queue-capacity:100}") int queueCapacity,
+                                 @Value("${querydsl.search.parallel-count.timeout-millis:3000}") long timeoutMillis,
+                                 @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maximumPoolSize) {
+        this.enabled = enabled;
+        this.timeoutMillis = timeoutMillis;
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis)));
+
+        // 요청 스레드가 content 용 커넥션을 쥔 채 count 를 기다리므로, count 가 풀을 다 쓰면 서로 커넥션을 기다리게 된다.
+        int countThreads = Math.max(1, Math.min(threads, maximumPoolSize / 2));
+        if (enabled && countThreads < threads) {
+            log.info("parallel count threads limited to {} (hikari maximum-pool-size {})", countThreads, maximumPoolSize);
+        }
+
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(countThreads);
+        this.executor.setMaxPoolSize(countThreads);
+        this.executor.setQueueCapacity(queueCapacity);
+        this.executor.setThreadNamePrefix("search-count-");
+        if (enabled) {
+            this.executor.initialize();
+        }
+    }
+
+    /**
+     * count 를 비동기로 시작한다. 병렬로 돌릴 수 없으면 null 을 돌려주고 호출자가 순차 실행한다.
+     * 쓰기 트랜잭션 안에서는 다른 커넥션에서 아직 커밋되지 않은 데이터가 보이지 않으므로 병렬로 돌리지 않는다.
+     */
+    public Future<Long> submit(LongSupplier countQuery) {
+        if (!enabled || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        try {
+            return executor.submit(() -> readOnlyTransaction.execute(status -> countQuery.getAsLong()));
+        } catch (TaskRejectedException e) {
+            log.debug("count executor saturated, running count sequentially");
+            return null;
+        }
+    }
+
+    /**
+     * 병렬 count 결과를 기다린다. 제한 시간 안에 끝나지 않으면(큐에서 밀렸거나 느린 경우) 취소하고 호출 스레드에서 직접 센다.
+     */
+    public long await(Future<Long> total, LongSupplier countQuery) {
+        try {
+            return total.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            total.cancel(true);
+            log.warn("parallel count did not finish in {}ms, running count sequentially", timeoutMillis);
+            return countQuery.getAsLong();
+        } catch (InterruptedException e) {
+            total.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for count query", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
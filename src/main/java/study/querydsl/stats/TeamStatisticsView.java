@@ -0,0 +1,283 @@
+package study.querydsl.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Member;
+import study.querydsl.Team;
+import study.querydsl.cache.CoalescingTask;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.event.EntityChange;
+import study.querydsl.event.EntityChangeListener;
+import study.querydsl.event.MemberBulkChangedEvent;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * 팀별 회원 통계(인원, 나이 합/평균/최소/최대, 나이 구간 분포)를 메모리에 유지하는 materialized view.
+ * 기동 시 한 번 전체를 읽고, 이후에는 Member/Team 변경이 커밋될 때마다 이벤트의 이전/이후 상태로 팀 집계만 고친다.
+ * 메모리와 조회 비용은 팀 수(와 팀별 서로 다른 나이 수)에만 비례한다.
+ *
+ * 다시 만드는 동안 커밋된 변경은 읽은 결과에 들어갔는지 알 수 없으므로, 그런 변경이 있었으면 한 번 더 만든다.
+ * JPQL 벌크 연산이나 이전 상태를 모르는 update 처럼 이벤트로 고칠 수 없는 변경은 다시 만든다.
+ * 전체를 읽는 작업이라 커밋한 스레드에서 하지 않고 전용 스레드에 맡기며, 밀린 요청은 한 번으로 합친다.
+ */
+@Slf4j
+@Component
+public class TeamStatisticsView implements EntityChangeListener {
+
+    private static final int BUCKET_WIDTH = 10;
+    private static final int MAX_REBUILD_ATTEMPTS = 5;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final CoalescingTask rebuilder = new CoalescingTask("team-stats-rebuild", this::rebuild);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, TeamStats> teams = new HashMap<>();
+    // lock 으로 보호: 빌드가 끝났는지, 다시 만드는 중인지, 그 사이에 반영하지 못한 커밋이 있었는지
+    private boolean built;
+    private boolean rebuilding;
+    private boolean missed;
+
+    public TeamStatisticsView(PlatformTransactionManager transactionManager) {
+        // 커밋 콜백 안에서는 방금 커밋한 트랜잭션이 아직 묶여 있으므로 참여하지 않고 새로 연다.
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        for (int attempt = 1; ; attempt++) {
+            setRebuilding(true);
+            // 읽는 동안에도 이전 집계로 조회할 수 있게 새 맵에 만든 뒤 바꿔 끼운다.
+            Map<Long, TeamStats> loaded = new HashMap<>();
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> load(loaded));
+            } catch (RuntimeException e) {
+                setRebuilding(false);
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                if (!missed || attempt == MAX_REBUILD_ATTEMPTS) {
+                    if (missed) {
+                        log.warn("members kept changing during {} team statistics rebuilds; stats may be off until the next rebuild", attempt);
+                    }
+                    teams = loaded;
+                    built = true;
+                    log.info("team statistics built for {} teams in {} ms", teams.size(), System.currentTimeMillis() - start);
+                    return;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("members changed during team statistics rebuild, rebuilding again");
+        }
+    }
+
+    private void setRebuilding(boolean value) {
+        lock.writeLock().lock();
+        try {
+            rebuilding = value;
+            missed = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load(Map<Long, TeamStats> target) {
+        for (Object[] row : em.createQuery("select t.id, t.name from Team t", Object[].class).getResultList()) {
+            target.put((Long) row[0], new TeamStats((String) row[1]));
+        }
+        try (Stream<Object[]> rows = em.createQuery("select m.team.id, m.age from Member m where m.team is not null", Object[].class)
+                .setHint(QueryHints.FETCH_SIZE, 1000)
+                .getResultStream()) {
+            rows.forEach(row -> statsOf(target, (Long) row[0]).add((Integer) row[1]));
+        }
+    }
+
+    @EventListener
+    public void onBulkChange(MemberBulkChangedEvent event) {
+        rebuilder.request();
+    }
+
+    /**
+     * 요청된 rebuild 가 끝날 때까지 기다린다(테스트용).
+     */
+    boolean awaitRebuild(long timeout, TimeUnit unit) throws InterruptedException {
+        return rebuilder.awaitIdle(timeout, unit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdown();
+    }
+
+    public List<TeamStatisticsDto> findAll() {
+        lock.readLock().lock();
+        try {
+            List<TeamStatisticsDto> result = new ArrayList<>(teams.size());
+            teams.forEach((teamId, stats) -> result.add(stats.toDto(teamId)));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void afterCommit(EntityChange change) {
+        if (!(change.isOf(Member.class) || change.isOf(Team.class))) {
+            return;
+        }
+        boolean applied;
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                missed = true;
+                return;
+            }
+            if (!built) {
+                // 첫 빌드 전의 커밋은 빌드가 읽는다.
+                return;
+            }
+            applied = change.isOf(Team.class) ? applyTeam(change) : applyMember(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!applied) {
+            rebuilder.request();
+        }
+    }
+
+    private boolean applyTeam(EntityChange change) {
+        Long teamId = (Long) change.getId();
+        if (change.getType() == EntityChange.Type.DELETE) {
+            teams.remove(teamId);
+        } else {
+            statsOf(teams, teamId).name = (String) change.getState("name");
+        }
+        return true;
+    }
+
+    /**
+     * 이전 상태의 팀에서 빼고 새 상태의 팀에 더한다. 이전 상태를 모르는 update 는 false 를 돌려주고 다시 만들게 한다.
+     */
+    private boolean applyMember(EntityChange change) {
+        switch (change.getType()) {
+            case INSERT:
+                add(change.getState("team"), change.getState("age"));
+                return true;
+            case DELETE:
+                // 삭제 이벤트는 삭제된 상태를 oldState 로 넘긴다.
+                remove(change.getOldState("team"), change.getOldState("age"));
+                return true;
+            default:
+                if (change.getOldState() == null) {
+                    return false;
+                }
+                remove(change.getOldState("team"), change.getOldState("age"));
+                add(change.getState("team"), change.getState("age"));
+                return true;
+        }
+    }
+
+    private void add(Object team, Object age) {
+        Long teamId = teamIdOf(team);
+        if (teamId != null) {
+            statsOf(teams, teamId).add((Integer) age);
+        }
+    }
+
+    private void remove(Object team, Object age) {
+        Long teamId = teamIdOf(team);
+        TeamStats stats = teamId == null ? null : teams.get(teamId);
+        if (stats != null) {
+            stats.remove((Integer) age);
+        }
+    }
+
+    private static TeamStats statsOf(Map<Long, TeamStats> target, Long teamId) {
+        // 팀 insert 이벤트보다 회원 이벤트가 먼저 온 경우. 이름은 팀 이벤트에서 채워진다.
+        return target.computeIfAbsent(teamId, id -> new TeamStats(null));
+    }
+
+    private static Long teamIdOf(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            // 프록시를 초기화하지 않고 id 만 꺼낸다.
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    private static final class TeamStats {
+        private String name;
+        private long count;
+        private long sumAge;
+        // 나이별 인원. 삭제가 있어도 최소/최대를 바로 알 수 있다.
+        private final TreeMap<Integer, Long> ages = new TreeMap<>();
+        private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+
+        private TeamStats(String name) {
+            this.name = name;
+        }
+
+        private void add(int age) {
+            count++;
+            sumAge += age;
+            ages.merge(age, 1L, Long::sum);
+            buckets.merge(bucketOf(age), 1L, Long::sum);
+        }
+
+        private void remove(int age) {
+            count--;
+            sumAge -= age;
+            decrement(ages, age);
+            decrement(buckets, bucketOf(age));
+        }
+
+        private static void decrement(TreeMap<Integer, Long> counts, int key) {
+            counts.computeIfPresent(key, (k, v) -> v == 1 ? null : v - 1);
+        }
+
+        private static int bucketOf(int age) {
+            return Math.floorDiv(age, BUCKET_WIDTH) * BUCKET_WIDTH;
+        }
+
+        private TeamStatisticsDto toDto(Long teamId) {
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            buckets.forEach((from, n) -> histogram.put(from + "-" + (from + BUCKET_WIDTH - 1), n));
+            return new TeamStatisticsDto(teamId, name, count, sumAge,
+                    ages.isEmpty() ? null : ages.firstKey(),
+                    ages.isEmpty() ? null : ages.lastKey(),
+                    histogram);
+        }
+    }
+}
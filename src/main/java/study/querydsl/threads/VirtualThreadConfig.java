@@ -0,0 +1,27 @@
+package study.querydsl.threads;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * querydsl.threads.virtual=true 이면 Tomcat 요청 처리(= MVC 핸들러와 저장소 호출)를 가상 스레드에서 돌린다.
+ * 스레드 풀이 동시성 상한이 아니게 되므로 실제 상한은 Hikari 풀 크기와 connection-timeout 이 맡는다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl.threads", name = "virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<AbstractProtocol<?>> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+        log.info("serving requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+}
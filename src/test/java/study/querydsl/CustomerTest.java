@@ -5,13 +5,25 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
+@Transactional
 class CustomerTest {
 
+    @Autowired
+    EntityManager em;
+
     @Autowired
     CustomerRepository customerRepository;
 
@@ -20,36 +32,47 @@ class CustomerTest {
 
     @BeforeEach
     void setUp() {
-        Customer customer1 = new Customer();
-        Customer customer2 = new Customer();
-        Customer customer3 = new Customer();
-        Customer customer4 = new Customer();
-        customerRepository.save(customer1);
-        customerRepository.save(customer2);
-        customerRepository.save(customer3);
-        customerRepository.save(customer4);
-        Optional<Customer> byId1 = customerRepository.findById(1L);
-        Optional<Customer> byId2 = customerRepository.findById(2L);
-        Optional<Customer> byId3 = customerRepository.findById(3L);
-        Optional<Customer> byId4 = customerRepository.findById(4L);
+        Customer customer1 = customerRepository.save(new Customer());
+        Customer customer2 = customerRepository.save(new Customer());
+        Customer customer3 = customerRepository.save(new Customer());
+        Customer customer4 = customerRepository.save(new Customer());
         for (int i = 0; i < 5; i++) {
-            AOrder AOrder = new AOrder((long) i, i + "A", byId1.get());
-            orderRepository.saveAndFlush(AOrder);
-            AOrder BOrder = new AOrder((long) i, i + "B", byId2.get());
-            orderRepository.saveAndFlush(BOrder);
-            AOrder COrder = new AOrder((long) i, i + "C", byId3.get());
-            orderRepository.saveAndFlush(COrder);
-            AOrder DOrder = new AOrder((long) i, i + "D", byId4.get());
-            orderRepository.saveAndFlush(DOrder);
+            orderRepository.save(new AOrder(i + "A", customer1));
+            orderRepository.save(new AOrder(i + "B", customer2));
+            orderRepository.save(new AOrder(i + "C", customer3));
+            orderRepository.save(new AOrder(i + "D", customer4));
         }
+        // 주문 쪽에서만 연관관계를 저장했으므로 고객의 컬렉션은 다시 읽어야 채워진다.
+        em.flush();
+        em.clear();
     }
 
-//    @Test
-//    @Transactional
-//    void name() {
-//        List<Customer> all = customerRepository.findAll();
-//        all.stream().forEach(a -> {
-//            a.getAOrders().stream().forEach(b -> System.out.println(b.getName()));
-//        });
-//    }
-}
\ No newline at end of file
+    @Test
+    void allFetchStrategiesLoadSameOrders() {
+        Map<Long, Set<String>> expected = new TreeMap<>();
+        for (AOrder order : orderRepository.findAll()) {
+            expected.computeIfAbsent(order.getCustomer().getId(), id -> new TreeSet<>()).add(order.getName());
+        }
+        assertThat(expected).hasSize(4);
+        em.clear();
+
+        for (CustomerFetchStrategy strategy : CustomerFetchStrategy.values()) {
+            // batchSize 3 으로 고객 4 명이 두 덩어리로 나뉘는 경계까지 확인한다.
+            List<Customer> customers = customerRepository.findAllWithOrders(strategy, 3);
+
+            assertThat(customers).as(strategy.name()).hasSize(4);
+            assertThat(ordersByCustomer(customers)).as(strategy.name()).containsExactlyEntriesOf(expected);
+            em.clear();
+        }
+    }
+
+    private static Map<Long, Set<String>> ordersByCustomer(List<Customer> customers) {
+        Map<Long, Set<String>> result = new LinkedHashMap<>();
+        for (Customer customer : customers) {
+            result.put(customer.getId(), customer.getAOrders().stream()
+                    .map(AOrder::getName)
+                    .collect(Collectors.toCollection(TreeSet::new)));
+        }
+        return result;
+    }
+}
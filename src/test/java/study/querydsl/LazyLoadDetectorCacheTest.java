@@ -0,0 +1,71 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 2차 캐시는 커밋된 뒤에 채워지므로 트랜잭션을 직접 나눠서 돌린다.
+@SpringBootTest(properties = {
+        "querydsl.n-plus-one.threshold=2",
+        "querydsl.n-plus-one.action=FAIL",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=org.ehcache.jsr107.EhcacheCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.uri=classpath:ehcache.xml",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create-warn"
+})
+class LazyLoadDetectorCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            for (int i = 0; i < 3; i++) {
+                Team team = new Team("team" + i);
+                em.persist(team);
+                em.persist(new Member("member" + i, i, team));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transaction.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        em.getEntityManagerFactory().getCache().evictAll();
+    }
+
+    @Test
+    void lazyLoadsServedFromSecondLevelCacheAreNotCounted() {
+        // 팀을 한 번 읽어 2차 캐시에 올려 둔다.
+        transaction.executeWithoutResult(status ->
+                em.createQuery("select t from Team t", Team.class).getResultList());
+
+        List<String> teamNames = transaction.execute(status -> {
+            List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+            return members.stream().map(m -> m.getTeam().getName()).collect(Collectors.toList());
+        });
+
+        assertThat(teamNames).containsExactlyInAnyOrder("team0", "team1", "team2");
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.diagnostics.NPlusOneQueryException;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "querydsl.n-plus-one.threshold=2",
+        "querydsl.n-plus-one.action=FAIL"
+})
+@Transactional
+class LazyLoadDetectorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 3; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + i, i, team));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void lazyTeamInLoopFails() {
+        List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+
+        assertThatThrownBy(() -> members.forEach(m -> m.getTeam().getName()))
+                .isInstanceOf(NPlusOneQueryException.class)
+                .hasMessageContaining("study.querydsl.Team");
+    }
+
+    @Test
+    void fetchJoinPasses() {
+        List<Member> members = em.createQuery("select m from Member m join fetch m.team", Member.class).getResultList();
+
+        members.forEach(m -> m.getTeam().getName());
+        assertThat(members).hasSize(3);
+    }
+}
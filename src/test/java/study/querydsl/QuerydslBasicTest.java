@@ -16,6 +16,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import study.querydsl.dto.MemberDto;
 import study.querydsl.dto.QMemberDto;
 import study.querydsl.dto.UserDto;
+import study.querydsl.projection.LambdaProjections;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -731,6 +732,31 @@ public class QuerydslBasicTest {
         }
     }
 
+    /**
+     * 리플렉션 없는 setter / 필드 접근
+     */
+    @Test
+    void findDtoByLambdaProjection() {
+
+        List<MemberDto> bySetter = queryFactory
+                .select(LambdaProjections.bean(MemberDto.class,
+                        member.username,
+                        member.age))
+                .from(member)
+                .fetch();
+
+        List<UserDto> byField = queryFactory
+                .select(LambdaProjections.fields(UserDto.class,
+                        member.username.as("name"),
+                        member.age))
+                .from(member)
+                .fetch();
+
+        assertThat(bySetter).extracting("username").containsExactly("member1", "member2", "member3", "member4");
+        assertThat(byField).extracting("name").containsExactly("member1", "member2", "member3", "member4");
+        assertThat(byField).extracting("age").containsExactly(10, 20, 30, 40);
+    }
+
     /**
      * 생성자 접근
      */
@@ -0,0 +1,58 @@
+package study.querydsl.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    void rejectOverLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0);
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+
+        limit.release(FAST, false);
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void shrinkWhenLatencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 100, 2.0);
+        saturate(limit, FAST, 50);
+        int healthy = limit.getLimit();
+        assertThat(healthy).isGreaterThan(20);
+
+        saturate(limit, SLOW, 20);
+        assertThat(limit.getLimit()).isLessThan(healthy);
+    }
+
+    @Test
+    void backOffOnFailure() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 100, 2.0);
+        limit.tryAcquire();
+        limit.release(FAST, true);
+
+        assertThat(limit.getLimit()).isEqualTo(18);
+    }
+
+    // 한도만큼 채운 상태에서 응답을 하나씩 돌려준다.
+    private void saturate(AdaptiveConcurrencyLimit limit, long latency, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            while (limit.tryAcquire()) {
+                // fill
+            }
+            limit.release(latency, false);
+        }
+        while (limit.getInFlight() > 0) {
+            limit.release(latency, false);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package study.querydsl.bulk;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Member;
+import study.querydsl.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberSearchCache;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.QMember.member;
+
+// 청크는 별도 트랜잭션에서 커밋되므로 테스트 트랜잭션 없이 돌리고 직접 정리한다.
+@SpringBootTest(properties = {
+        "querydsl.bulk.chunk-size=10",
+        "querydsl.bulk.parallelism=2",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=org.ehcache.jsr107.EhcacheCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.uri=classpath:ehcache.xml",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create-warn"
+})
+class MemberBulkServiceTest {
+
+    private static final int MEMBERS = 25;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberBulkService bulkService;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    MemberSearchCache searchCache;
+
+    TransactionTemplate transaction;
+    List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            Team team = new Team("bulkTeam");
+            em.persist(team);
+            for (int i = 0; i < MEMBERS; i++) {
+                Member m = new Member("bulk" + i, i, team);
+                em.persist(m);
+                ids.add(m.getId());
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transaction.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("bulk")).execute();
+            em.createQuery("delete from Team t where t.name = 'bulkTeam'").executeUpdate();
+        });
+        em.getEntityManagerFactory().getCache().evictAll();
+        countCache.invalidateAll();
+        searchCache.invalidateAll();
+    }
+
+    @Test
+    void updateEveryRowOnceAcrossChunkBoundaries() {
+        List<BulkProgress> progress = new CopyOnWriteArrayList<>();
+
+        // age >= 5 라서 첫 청크는 bulk5 의 id 에서 시작한다.
+        BulkProgress result = bulkService.update(member.username.startsWith("bulk").and(member.age.goe(5)),
+                clause -> clause.set(member.age, member.age.add(100)), progress::add);
+
+        long expectedChunks = (ids.get(MEMBERS - 1) - ids.get(5)) / 10 + 1;
+        assertThat(result.getTotalChunks()).isEqualTo(expectedChunks);
+        assertThat(result.getCompletedChunks()).isEqualTo(expectedChunks);
+        assertThat(result.getAffectedRows()).isEqualTo(MEMBERS - 5);
+        assertThat(result.isDone()).isTrue();
+        assertThat(progress).hasSize((int) expectedChunks);
+        assertThat(progress).extracting(BulkProgress::getCompletedChunks)
+                .containsExactlyInAnyOrder(rangeClosed(1, (int) expectedChunks));
+
+        // 청크 경계의 행이 두 번 처리되거나 빠지면 나이가 +200 이거나 그대로다.
+        List<Member> members = transaction.execute(status -> queryFactory
+                .selectFrom(member)
+                .where(member.username.startsWith("bulk"))
+                .orderBy(member.id.asc())
+                .fetch());
+        for (int i = 0; i < MEMBERS; i++) {
+            assertThat(members.get(i).getAge()).as(members.get(i).getUsername()).isEqualTo(i < 5 ? i : i + 100);
+        }
+    }
+
+    @Test
+    void deleteMatchingRows() {
+        BulkProgress result = bulkService.delete(member.username.startsWith("bulk").and(member.age.lt(10)), null);
+
+        assertThat(result.getAffectedRows()).isEqualTo(10);
+        Long remaining = transaction.execute(status -> queryFactory
+                .select(member.count())
+                .from(member)
+                .where(member.username.startsWith("bulk"))
+                .fetchOne());
+        assertThat(remaining).isEqualTo(MEMBERS - 10);
+    }
+
+    @Test
+    void noMatchingRows() {
+        BulkProgress result = bulkService.delete(member.username.eq("nobody"), null);
+
+        assertThat(result.getTotalChunks()).isZero();
+        assertThat(result.getAffectedRows()).isZero();
+    }
+
+    @Test
+    void invalidateCachesAfterBulkChange() {
+        Long id = ids.get(0);
+        MemberSearchCondition condition = new MemberSearchCondition(null, "bulkTeam", null, null);
+        AtomicInteger counts = new AtomicInteger();
+        AtomicInteger searches = new AtomicInteger();
+
+        transaction.executeWithoutResult(status -> em.find(Member.class, id));
+        countCache.count(condition, counts::incrementAndGet);
+        searchCache.get(condition, Pageable.unpaged(), searches::incrementAndGet);
+        assertThat(em.getEntityManagerFactory().getCache().contains(Member.class, id)).isTrue();
+
+        bulkService.update(member.id.eq(id), clause -> clause.set(member.age, 99), null);
+
+        assertThat(em.getEntityManagerFactory().getCache().contains(Member.class, id)).isFalse();
+        countCache.count(condition, counts::incrementAndGet);
+        searchCache.get(condition, Pageable.unpaged(), searches::incrementAndGet);
+        assertThat(counts.get()).as("count 캐시").isEqualTo(2);
+        assertThat(searches.get()).as("검색 결과 캐시").isEqualTo(2);
+
+        Member reloaded = transaction.execute(status -> em.find(Member.class, id));
+        assertThat(reloaded.getAge()).isEqualTo(99);
+    }
+
+    private static Integer[] rangeClosed(int from, int to) {
+        Integer[] values = new Integer[to - from + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,93 @@
+package study.querydsl.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+    @Test
+    void coalesceConcurrentCalls() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(5, TimeUnit.SECONDS);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<Integer> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                leaderStarted.countDown();
+                await(release);
+                return calls.incrementAndGet();
+            }));
+            leaderStarted.await();
+
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("key", calls::incrementAndGet)));
+            }
+            // 팔로워가 모두 leader 의 결과를 기다리기 시작한 뒤에 leader 를 끝낸다.
+            awaitWaiting(singleFlight, 5);
+            release.countDown();
+
+            assertThat(leader.get()).isEqualTo(1);
+            for (Future<Integer> follower : followers) {
+                assertThat(follower.get()).isEqualTo(1);
+            }
+            assertThat(calls.get()).isEqualTo(1);
+            assertThat(singleFlight.sharedCount()).isEqualTo(5);
+            assertThat(singleFlight.inFlightCount()).isZero();
+            assertThat(singleFlight.waitingCount()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void runOwnCallAfterTimeout() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(50, TimeUnit.MILLISECONDS);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> singleFlight.execute("key", () -> {
+                leaderStarted.countDown();
+                await(release);
+                return "leader";
+            }));
+            leaderStarted.await();
+
+            assertThat(singleFlight.execute("key", () -> "own")).isEqualTo("own");
+            assertThat(singleFlight.timeoutCount()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitWaiting(SingleFlight<?, ?> singleFlight, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.waitingCount() < expected) {
+            assertThat(System.nanoTime()).as("waiting followers").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package study.querydsl.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-replica";
+
+    private final ReplicaRoutingDataSource routing = routingDataSource(REPLICA_URL);
+    private final DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+    private final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+    @Test
+    void readOnlyTransactionRoutesToReplica() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        String url = readOnly.execute(status -> {
+            assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-0");
+            return connectionUrl(dataSource);
+        });
+
+        assertThat(url).isEqualTo(REPLICA_URL);
+    }
+
+    @Test
+    void writeTransactionRoutesToPrimary() {
+        TransactionTemplate write = new TransactionTemplate(transactionManager);
+
+        String url = write.execute(status -> {
+            assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+            return connectionUrl(dataSource);
+        });
+
+        assertThat(url).isEqualTo(PRIMARY_URL);
+    }
+
+    @Test
+    void fallBackToPrimaryWhenReplicaIsDown() {
+        // 존재하지 않는 파일 DB 를 IFEXISTS 로 열면 커넥션을 얻지 못한다.
+        DataSource broken = new LazyConnectionDataSourceProxy(
+                routingDataSource("jdbc:h2:~/no-such-replica;IFEXISTS=TRUE"));
+        TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(broken));
+        readOnly.setReadOnly(true);
+
+        String url = readOnly.execute(status -> connectionUrl(broken));
+
+        assertThat(url).isEqualTo(PRIMARY_URL);
+    }
+
+    @Test
+    void snapshotCopiesPrimaryToReplica() {
+        JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL + "-snapshot;DB_CLOSE_DELAY=-1", "sa", ""));
+        DataSource replica = new DriverManagerDataSource(REPLICA_URL + "-snapshot;DB_CLOSE_DELAY=-1", "sa", "");
+        primary.execute("create table item (id bigint primary key, name varchar(20))");
+        primary.update("insert into item values (1, 'before')");
+
+        ReplicaSnapshot.copy(primary.getDataSource(), replica);
+        primary.update("insert into item values (2, 'after')");
+
+        // 복사 이후의 쓰기는 레플리카에 없다.
+        assertThat(new JdbcTemplate(replica).queryForList("select name from item", String.class)).containsExactly("before");
+        primary.execute("drop table item");
+    }
+
+    private static String connectionUrl(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getURL());
+    }
+
+    private static ReplicaRoutingDataSource routingDataSource(String replicaUrl) {
+        DataSource primary = new DriverManagerDataSource(PRIMARY_URL, "sa", "");
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primary);
+        targets.put("replica-0", new DriverManagerDataSource(replicaUrl, "sa", ""));
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, Collections.singletonList("replica-0"));
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+}
@@ -0,0 +1,109 @@
+package study.querydsl.ingest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// StatelessSession 이 직접 커밋하므로 테스트 트랜잭션 없이 돌리고 직접 정리한다.
+@SpringBootTest
+class MemberCsvImporterTest {
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from member where username like 'csv\\_%' escape '\\'");
+        jdbc.update("delete from team where name like 'csvTeam%'");
+    }
+
+    @Test
+    void parseQuotedFieldsAndLineEndings() throws IOException {
+        String csv = "username,age,teamName\r\n"
+                + "\"csv_kim, jr\",20,csvTeamA\r\n"
+                + "\"csv_say \"\"hi\"\"\",30,\"csvTeam, B\"\n"
+                + "csv_홍길동,40,csvTeamA\n"
+                + "csv_noteam,50\n"
+                + "\n"
+                + "\"csv_broken,60,csvTeamA\n"
+                + "csv_last,70,csvTeamA";
+
+        MemberImportResult result = importer(1).importFile(write(csv));
+
+        assertThat(result.getImportedRows()).isEqualTo(5);
+        assertThat(result.getSkippedRows()).as("헤더, 닫히지 않은 따옴표").isEqualTo(2);
+        assertThat(result.getCreatedTeams()).as("없던 팀은 만든다").isEqualTo(2);
+
+        Map<String, String> rows = importedRows();
+        assertThat(rows).containsOnlyKeys("csv_kim, jr", "csv_say \"hi\"", "csv_홍길동", "csv_noteam", "csv_last");
+        assertThat(rows.get("csv_kim, jr")).isEqualTo("20/csvTeamA");
+        assertThat(rows.get("csv_say \"hi\"")).isEqualTo("30/csvTeam, B");
+        assertThat(rows.get("csv_홍길동")).isEqualTo("40/csvTeamA");
+        assertThat(rows.get("csv_noteam")).isEqualTo("50/null");
+        assertThat(rows.get("csv_last")).as("마지막 줄에 줄바꿈이 없어도 읽는다").isEqualTo("70/csvTeamA");
+    }
+
+    @Test
+    void partitionBoundariesInsideLines() throws IOException {
+        // 파일 크기를 7 등분한 위치는 줄(과 멀티바이트 문자) 한가운데에 떨어진다. 다음 줄 시작으로 밀려야 한다.
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            csv.append("csv_회원").append(i).append(',').append(i % 100).append(",csvTeam").append(i % 3).append('\n');
+        }
+
+        MemberImportResult result = importer(7).importFile(write(csv.toString()));
+
+        assertThat(result.getImportedRows()).isEqualTo(1000);
+        assertThat(result.getSkippedRows()).isZero();
+        Map<String, String> rows = importedRows();
+        assertThat(rows).hasSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(rows.get("csv_회원" + i)).isEqualTo((i % 100) + "/csvTeam" + (i % 3));
+        }
+    }
+
+    private MemberCsvImporter importer(int parallelism) {
+        return new MemberCsvImporter(emf, eventPublisher, parallelism, 50, 100);
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(dir.resolve("members.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * username -> "나이/팀 이름". 같은 username 이 두 번 들어가면 한 건만 남으므로 건수로 중복을 잡는다.
+     */
+    private Map<String, String> importedRows() {
+        Map<String, String> rows = new HashMap<>();
+        jdbc.query("select m.username, m.age, t.name from member m left join team t on m.team_id = t.team_id"
+                        + " where m.username like 'csv\\_%' escape '\\'",
+                (RowCallbackHandler) rs -> rows.put(rs.getString(1), rs.getInt(2) + "/" + rs.getString(3)));
+        Integer count = jdbc.queryForObject("select count(*) from member where username like 'csv\\_%' escape '\\'", Integer.class);
+        assertThat(count).isEqualTo(rows.size());
+        return rows;
+    }
+}
@@ -0,0 +1,104 @@
+package study.querydsl.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Member;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 동시에 들어온 조회가 한 window 에 모이도록 window 를 넉넉히 둔다.
+@SpringBootTest(properties = {
+        "querydsl.batch-loader.window-millis=200",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class MemberBatchLoaderTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBatchLoader memberBatchLoader;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @Transactional
+    void loadAll() {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        em.persist(member1);
+        em.persist(member2);
+
+        Map<Long, Member> result = memberBatchLoader.loadAll(Arrays.asList(member1.getId(), member2.getId(), member1.getId(), -1L));
+
+        assertThat(result).hasSize(2);
+        assertThat(result.get(member1.getId())).isSameAs(member1);
+        assertThat(result.get(member2.getId())).isSameAs(member2);
+    }
+
+    @Test
+    @Transactional
+    void loadDedupesPendingIds() throws Exception {
+        CompletableFuture<Optional<Member>> first = memberBatchLoader.load(-1L);
+        CompletableFuture<Optional<Member>> second = memberBatchLoader.load(-1L);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEmpty();
+    }
+
+    @Test
+    void concurrentLoadsRunOneInQuery() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            members.add(new Member("loader" + i, i));
+        }
+        transaction.executeWithoutResult(status -> members.forEach(em::persist));
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        ExecutorService callers = Executors.newFixedThreadPool(members.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            statistics.clear();
+            List<Future<Optional<Member>>> results = new ArrayList<>();
+            for (Member member : members) {
+                results.add(callers.submit(() -> {
+                    start.await();
+                    return memberBatchLoader.load(member.getId()).get(5, TimeUnit.SECONDS);
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < members.size(); i++) {
+                String username = members.get(i).getUsername();
+                assertThat(results.get(i).get(5, TimeUnit.SECONDS))
+                        .hasValueSatisfying(found -> assertThat(found.getUsername()).isEqualTo(username));
+            }
+            assertThat(statistics.getQueryExecutionCount()).as("id 마다가 아니라 in 쿼리 한 번").isEqualTo(1);
+        } finally {
+            callers.shutdownNow();
+            transaction.executeWithoutResult(status ->
+                    em.createQuery("delete from Member m where m.username like 'loader%'").executeUpdate());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.Member;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.EntityChange;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberCountCacheTest {
+
+    private static final String[] PROPERTIES = {"age", "team", "username"};
+
+    private final MemberCountCache countCache = new MemberCountCache(100, 30);
+    private final MemberSearchCondition condition = new MemberSearchCondition(null, "teamA", 10, null);
+
+    @Test
+    void invalidateOnCommit() {
+        AtomicInteger counts = new AtomicInteger();
+
+        assertThat(countCache.count(condition, () -> counts.incrementAndGet() * 10L)).isEqualTo(10);
+        assertThat(countCache.count(condition, () -> counts.incrementAndGet() * 10L)).isEqualTo(10);
+        assertThat(counts.get()).isEqualTo(1);
+
+        countCache.afterCommit(insertOf(new Member("member1", 20)));
+
+        assertThat(countCache.count(condition, () -> counts.incrementAndGet() * 10L)).isEqualTo(20);
+        assertThat(counts.get()).isEqualTo(2);
+    }
+
+    @Test
+    void skipPutWhenInvalidatedDuringCount() {
+        AtomicInteger counts = new AtomicInteger();
+
+        // count 쿼리가 도는 동안 다른 트랜잭션이 커밋된 상황
+        long stale = countCache.count(condition, () -> {
+            counts.incrementAndGet();
+            countCache.afterCommit(insertOf(new Member("member1", 20)));
+            return 1L;
+        });
+        assertThat(stale).isEqualTo(1);
+
+        assertThat(countCache.count(condition, () -> {
+            counts.incrementAndGet();
+            return 2L;
+        })).isEqualTo(2);
+        assertThat(counts.get()).isEqualTo(2);
+    }
+
+    private static EntityChange insertOf(Member member) {
+        return new EntityChange(EntityChange.Type.INSERT, member, 1L, PROPERTIES,
+                new Object[]{member.getAge(), null, member.getUsername()}, null);
+    }
+}
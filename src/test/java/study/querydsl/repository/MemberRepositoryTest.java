@@ -5,16 +5,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import study.querydsl.Member;
 import study.querydsl.Team;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberKeysetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 
 @SpringBootTest
@@ -106,5 +112,135 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
 
+    @Test
+    void searchKeysetTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        em.persist(new Member("member1", 40, teamA));
+        em.persist(new Member("member2", 30, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 10, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        MemberKeysetPage first = memberRepository.searchKeyset(condition, MemberCursor.SortKey.AGE, null, 3);
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member4", "member3", "member2");
+        assertThat(first.isHasNext()).isTrue();
+
+        MemberKeysetPage second = memberRepository.searchKeyset(condition, MemberCursor.SortKey.ID,
+                MemberCursor.decode(first.getNextCursor()), 3);
+
+        assertThat(second.getContent()).extracting("username").containsExactly("member1");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void searchBatchTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        List<List<MemberTeamDto>> result = memberRepository.searchBatch(Arrays.asList(
+                new MemberSearchCondition("member1", null, null, null),
+                new MemberSearchCondition("member3", null, null, null),
+                new MemberSearchCondition(null, "teamB", 35, null),
+                new MemberSearchCondition("member1", null, null, null)));
+
+        assertThat(result).hasSize(4);
+        assertThat(result.get(0)).extracting("username").containsExactly("member1");
+        assertThat(result.get(1)).extracting("username").containsExactly("member3");
+        assertThat(result.get(2)).extracting("username").containsExactly("member4");
+        assertThat(result.get(3)).extracting("username").containsExactly("member1");
+    }
+
+    @Test
+    void searchBatchMergedGroupWithoutUsername() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+
+        MemberSearchCondition prefix = new MemberSearchCondition(null, "teamA", null, null);
+        prefix.setUsernamePrefix("member2");
 
-}
\ No newline at end of file
+        // 앞의 두 조건은 teamA 로 한 그룹이고 username 이 없는 조건이 있어서 팀 조건만으로 읽는다.
+        List<List<MemberTeamDto>> result = memberRepository.searchBatch(Arrays.asList(
+                new MemberSearchCondition("member1", "teamA", null, null),
+                new MemberSearchCondition(null, "teamA", null, null),
+                prefix,
+                new MemberSearchCondition("member3", "teamA", null, null)));
+
+        assertThat(result.get(0)).extracting("username").containsExactly("member1");
+        assertThat(result.get(1)).extracting("username").containsExactly("member1", "member2");
+        assertThat(result.get(2)).extracting("username").containsExactly("member2");
+        assertThat(result.get(3)).isEmpty();
+    }
+
+    @Test
+    void searchBatchWithEmptyConditionReadsEverything() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, null));
+
+        List<List<MemberTeamDto>> result = memberRepository.searchBatch(Arrays.asList(
+                new MemberSearchCondition("member2", null, null, null),
+                new MemberSearchCondition(),
+                new MemberSearchCondition(null, null, 25, null)));
+
+        assertThat(result.get(0)).extracting("username").containsExactly("member2");
+        assertThat(result.get(1)).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(result.get(2)).extracting("username").containsExactly("member3");
+    }
+
+    @Test
+    void searchSliceTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+        em.persist(new Member("member4", 40, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(first.hasNext()).isTrue();
+
+        Slice<MemberTeamDto> second = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+        assertThat(second.getContent()).extracting("username").containsExactly("member4");
+        assertThat(second.hasNext()).isFalse();
+
+        Slice<MemberTeamDto> byAgeDesc = memberRepository.searchSlice(condition, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age")));
+        assertThat(byAgeDesc.getContent()).extracting("username").containsExactly("member4", "member3");
+    }
+
+    @Test
+    void searchSliceRejectsUnsortableProperty() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        assertThatThrownBy(() -> memberRepository.searchSlice(condition, PageRequest.of(0, 3, Sort.by("foo"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        // DTO 이름이나 연관 경로도 받지 않는다.
+        assertThatThrownBy(() -> memberRepository.searchSlice(condition, PageRequest.of(0, 3, Sort.by("teamName"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> memberRepository.searchSlice(condition, PageRequest.of(0, 3, Sort.by("team.name"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.Member;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.EntityChange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 쓰기 트랜잭션 안에서는 캐시를 우회하므로 트랜잭션 없이 돌린다.
+@SpringBootTest
+class MemberSearchCacheTest {
+
+    private static final String[] PROPERTIES = {"age", "team", "username"};
+
+    @Autowired
+    MemberSearchCache searchCache;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @AfterEach
+    void tearDown() {
+        searchCache.invalidateAll();
+    }
+
+    @Test
+    void invalidateOnlyMatchingConditions() {
+        MemberSearchCondition age20to30 = new MemberSearchCondition(null, null, 20, 30);
+        MemberSearchCondition age40to50 = new MemberSearchCondition(null, null, 40, 50);
+        AtomicInteger loads = new AtomicInteger();
+
+        searchCache.get(age20to30, Pageable.unpaged(), loads::incrementAndGet);
+        searchCache.get(age40to50, PageRequest.of(0, 10), loads::incrementAndGet);
+        searchCache.get(age20to30, Pageable.unpaged(), loads::incrementAndGet);
+        searchCache.get(age40to50, PageRequest.of(0, 10), loads::incrementAndGet);
+        assertThat(loads.get()).isEqualTo(2);
+
+        // 나이가 25 -> 26 으로 바뀐 회원은 20~30 조건에만 걸린다.
+        Member member = new Member("member1", 26);
+        searchCache.afterCommit(new EntityChange(EntityChange.Type.UPDATE, member, 1L, PROPERTIES,
+                new Object[]{26, null, "member1"}, new Object[]{25, null, "member1"}));
+
+        searchCache.get(age20to30, Pageable.unpaged(), loads::incrementAndGet);
+        searchCache.get(age40to50, PageRequest.of(0, 10), loads::incrementAndGet);
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    void searchBatchSharesCacheWithSearch() {
+        MemberSearchCondition cached = new MemberSearchCondition("batchCached", null, null, null);
+        MemberSearchCondition notCached = new MemberSearchCondition("batchNotCached", null, null, null);
+
+        List<MemberTeamDto> single = memberRepository.search(cached);
+        List<List<MemberTeamDto>> first = memberRepository.searchBatch(Arrays.asList(cached, notCached));
+        List<List<MemberTeamDto>> second = memberRepository.searchBatch(Arrays.asList(notCached, cached));
+
+        // 캐시된 결과는 같은 인스턴스로 돌아온다.
+        assertThat(first.get(0)).isSameAs(single);
+        assertThat(second.get(1)).isSameAs(single);
+        assertThat(second.get(0)).isSameAs(first.get(1));
+    }
+
+    @Test
+    void getAllLoadsOnlyMissesInOneBatch() {
+        MemberSearchCondition cached = new MemberSearchCondition(null, null, 20, 30);
+        MemberSearchCondition missed1 = new MemberSearchCondition(null, null, 40, 50);
+        MemberSearchCondition missed2 = new MemberSearchCondition(null, null, 60, 70);
+        searchCache.get(cached, Pageable.unpaged(), () -> "cached");
+
+        List<List<MemberSearchCondition>> batches = new ArrayList<>();
+        Function<List<MemberSearchCondition>, Map<MemberSearchCondition, String>> batchLoader = conditions -> {
+            batches.add(conditions);
+            Map<MemberSearchCondition, String> loaded = new HashMap<>();
+            conditions.forEach(condition -> loaded.put(condition, "batch" + condition.getAgeGoe()));
+            return loaded;
+        };
+
+        Map<MemberSearchCondition, String> result = searchCache.getAll(Arrays.asList(cached, missed1, missed2),
+                condition -> () -> "single", batchLoader);
+
+        assertThat(result).containsEntry(cached, "cached").containsEntry(missed1, "batch40").containsEntry(missed2, "batch60");
+        assertThat(batches).containsExactly(Arrays.asList(missed1, missed2));
+        // 읽은 결과는 목록 검색과 같은 키로 들어간다.
+        assertThat(searchCache.get(missed1, Pageable.unpaged(), () -> "reloaded")).isEqualTo("batch40");
+    }
+}
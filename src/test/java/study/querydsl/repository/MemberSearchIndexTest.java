@@ -0,0 +1,117 @@
+package study.querydsl.repository;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.internal.ast.ASTQueryTranslatorFactory;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.Member;
+import study.querydsl.Team;
+import study.querydsl.dto.MemberSearchCondition;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 검색 조건의 모든 필터 조합에 대해 실제로 생성되는 SQL 을 H2 EXPLAIN 으로 확인한다.
+ * 필터가 하나라도 있는데 테이블 풀스캔이 나오면 실패한다.
+ */
+@SpringBootTest
+@Transactional
+class MemberSearchIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSearchQueries queries;
+
+    @BeforeEach
+    void setUp() {
+        for (int t = 0; t < 10; t++) {
+            Team team = new Team("team" + t);
+            em.persist(team);
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("member" + t + "_" + i, i, team));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void everyFilterPathIsIndexBacked() {
+        List<String> scans = new ArrayList<>();
+
+        // 비트 0: username, 1: teamname, 2: ageGoe, 3: ageLoe (0 은 필터 없음이라 제외)
+        for (int shape = 1; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition(
+                    (shape & 1) != 0 ? "member3_30" : null,
+                    (shape & 2) != 0 ? "team3" : null,
+                    (shape & 4) != 0 ? 90 : null,
+                    (shape & 8) != 0 ? 95 : null);
+
+            String plan = explain(toSql(queries.content(condition).toString()), parameters(condition));
+            if (plan.contains("tableScan")) {
+                scans.add(condition + " -> " + plan);
+            }
+        }
+
+        assertThat(scans).as("풀스캔이 발생한 검색 조건").isEmpty();
+    }
+
+    private String toSql(String jpql) {
+        SessionFactoryImplementor factory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        QueryTranslator translator = new ASTQueryTranslatorFactory()
+                .createQueryTranslator(jpql, jpql, Collections.emptyMap(), factory, null);
+        translator.compile(Collections.emptyMap(), false);
+        return translator.getSQLString();
+    }
+
+    /**
+     * JPQL 의 where 절과 같은 순서(username, teamname, ageGoe, ageLoe)로 바인딩할 값.
+     */
+    private List<Object> parameters(MemberSearchCondition condition) {
+        List<Object> values = new ArrayList<>();
+        if (condition.getUsername() != null) {
+            values.add(condition.getUsername());
+        }
+        if (condition.getTeamname() != null) {
+            values.add(condition.getTeamname());
+        }
+        if (condition.getAgeGoe() != null) {
+            values.add(condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            values.add(condition.getAgeLoe());
+        }
+        return values;
+    }
+
+    private String explain(String sql, List<Object> parameters) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1));
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.Member;
+import study.querydsl.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSearchQueriesTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSearchQueries queries;
+
+    /**
+     * 모양별 템플릿에 파라미터만 바인딩한 결과가 Querydsl 로 매번 만든 쿼리 결과와 같아야 한다.
+     */
+    @Test
+    void templateMatchesQuerydslForEveryShape() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("member" + (i % 5), i * 5, i % 3 == 0 ? null : (i % 2 == 0 ? teamA : teamB)));
+        }
+        em.flush();
+        em.clear();
+
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition(
+                    (shape & 1) != 0 ? "member2" : null,
+                    (shape & 2) != 0 ? "teamB" : null,
+                    (shape & 4) != 0 ? 20 : null,
+                    (shape & 8) != 0 ? 80 : null);
+
+            List<MemberTeamDto> expected = queries.content(condition).fetch();
+            assertThat(ids(queries.fetch(condition, Pageable.unpaged()))).as("shape %d", shape).isEqualTo(ids(expected));
+            assertThat(queries.fetchCount(condition)).as("shape %d", shape).isEqualTo(queries.count(condition).fetchOne());
+            // 두 번째 호출은 만들어 둔 템플릿을 쓴다.
+            assertThat(ids(queries.fetch(condition, Pageable.unpaged()))).as("shape %d", shape).isEqualTo(ids(expected));
+        }
+    }
+
+    @Test
+    void templateAppliesPageAndCopiesColumns() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition(null, "teamA", 10, null);
+        List<MemberTeamDto> page = queries.fetch(condition, PageRequest.of(1, 2));
+
+        assertThat(page).hasSize(2);
+        assertThat(page).extracting("teamName").containsOnly("teamA");
+        assertThat(page).extracting("teamId").containsOnly(teamA.getId());
+        assertThat(queries.fetchCount(condition)).isEqualTo(5);
+    }
+
+    private static List<Long> ids(List<MemberTeamDto> rows) {
+        return rows.stream().map(MemberTeamDto::getMemberId).sorted(Comparator.naturalOrder()).collect(Collectors.toList());
+    }
+}
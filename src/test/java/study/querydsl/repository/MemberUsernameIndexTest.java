@@ -0,0 +1,145 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Member;
+import study.querydsl.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.MemberBulkChangedEvent;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberUsernameIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberUsernameIndex usernameIndex;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void findIds() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Member alice = new Member("alice", 10);
+        Member alicia = new Member("alicia", 20);
+        Member malice = new Member("malice", 30);
+        Member bob = new Member("bob", 40);
+        try {
+            transaction.executeWithoutResult(status -> {
+                em.persist(alice);
+                em.persist(alicia);
+                em.persist(malice);
+                em.persist(bob);
+            });
+            usernameIndex.rebuild();
+
+            assertThat(usernameIndex.findIds("ali", null, 10)).containsExactly(alice.getId(), alicia.getId());
+            assertThat(usernameIndex.findIds(null, "lic", 10)).containsExactlyInAnyOrder(alice.getId(), alicia.getId(), malice.getId());
+            assertThat(usernameIndex.findIds("ali", "ice", 10)).containsExactly(alice.getId());
+            assertThat(usernameIndex.findIds(null, "o", 10)).containsExactly(bob.getId());
+            assertThat(usernameIndex.findIds(null, "xyz", 10)).isEmpty();
+            assertThat(usernameIndex.findIds(null, "lic", 2)).isNull();
+        } finally {
+            transaction.executeWithoutResult(status -> em.createQuery("delete from Member m where m.username in :usernames")
+                    .setParameter("usernames", Arrays.asList("alice", "alicia", "malice", "bob"))
+                    .executeUpdate());
+            usernameIndex.rebuild();
+        }
+    }
+
+    /**
+     * 벌크 연산 뒤의 재구축은 이벤트를 발행한 스레드가 아니라 백그라운드에서 한다.
+     */
+    @Test
+    void rebuildAfterBulkChangeInBackground() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Member member = new Member("yak", 10);
+        try {
+            transaction.executeWithoutResult(status -> em.persist(member));
+            transaction.executeWithoutResult(status -> em.createQuery("update Member m set m.username = 'yeti' where m.id = :id")
+                    .setParameter("id", member.getId())
+                    .executeUpdate());
+            assertThat(usernameIndex.findIds("yak", null, 10)).containsExactly(member.getId());
+
+            eventPublisher.publishEvent(new MemberBulkChangedEvent(member.getId(), member.getId()));
+
+            assertThat(usernameIndex.awaitRebuild(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(usernameIndex.findIds("yak", null, 10)).isEmpty();
+            assertThat(usernameIndex.findIds("yet", null, 10)).containsExactly(member.getId());
+        } finally {
+            transaction.executeWithoutResult(status ->
+                    em.createQuery("delete from Member m where m.username in ('yak', 'yeti')").executeUpdate());
+            usernameIndex.rebuild();
+        }
+    }
+
+    @Test
+    @Transactional
+    void searchByUsernameContains() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member_2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+
+        // 쓰기 트랜잭션 안에서는 인덱스 대신 like 로 조회한다. _ 는 와일드카드가 아니라 문자 그대로 찾는다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("r_");
+        List<MemberTeamDto> result = memberRepository.search(condition);
+        assertThat(result).extracting("username").containsExactly("member_2");
+
+        condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("member");
+        condition.setAgeGoe(20);
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactlyInAnyOrder("member_2", "member3");
+    }
+
+    @Test
+    void applyCommitsAfterBuild() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Member member = new Member("zebra", 10);
+        try {
+            transaction.executeWithoutResult(status -> em.persist(member));
+            assertThat(usernameIndex.findIds("zeb", null, 10)).containsExactly(member.getId());
+
+            transaction.executeWithoutResult(status -> em.find(Member.class, member.getId()).setUsername("zulu"));
+            assertThat(usernameIndex.findIds("zeb", null, 10)).isEmpty();
+            assertThat(usernameIndex.findIds(null, "ulu", 10)).containsExactly(member.getId());
+
+            // 트랜잭션 밖의 검색은 인덱스에서 찾은 id 로 조회한다.
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsernamePrefix("zu");
+            assertThat(memberJpaRepository.searchByBuilder(condition)).extracting("username").containsExactly("zulu");
+
+            transaction.executeWithoutResult(status -> em.remove(em.find(Member.class, member.getId())));
+            assertThat(usernameIndex.findIds(null, "ulu", 10)).isEmpty();
+        } finally {
+            transaction.executeWithoutResult(status ->
+                    em.createQuery("delete from Member m where m.username in ('zebra', 'zulu')").executeUpdate());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelCountExecutorTest {
+
+    private final DataSourceTransactionManager transactionManager =
+            new DataSourceTransactionManager(new DriverManagerDataSource("jdbc:h2:mem:parallel-count", "sa", ""));
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ParallelCountExecutor executor;
+
+    @BeforeEach
+    void readOnlyTransaction() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void timeoutFallsBackToCallerThread() throws Exception {
+        executor = new ParallelCountExecutor(transactionManager, true, 1, 10, 100, 10);
+
+        // count 스레드에서는 release 될 때까지 막히고, 호출 스레드에서는 바로 끝나는 count
+        Thread caller = Thread.currentThread();
+        LongSupplier countQuery = () -> {
+            if (Thread.currentThread() == caller) {
+                return 2L;
+            }
+            awaitRelease();
+            return 1L;
+        };
+
+        Future<Long> total = executor.submit(countQuery);
+        assertThat(total).isNotNull();
+
+        assertThat(executor.await(total, countQuery)).isEqualTo(2L);
+        assertThat(total.isCancelled()).isTrue();
+    }
+
+    @Test
+    void rejectedWhenCountThreadsAreBusy() {
+        // 스레드 8 개를 요청해도 풀 크기 2 의 절반인 1 개로 줄어든다. 큐가 없으므로 두 번째 count 는 거절된다.
+        executor = new ParallelCountExecutor(transactionManager, true, 8, 0, 1000, 2);
+        LongSupplier blocking = () -> {
+            awaitRelease();
+            return 1L;
+        };
+
+        Future<Long> first = executor.submit(blocking);
+        Future<Long> second = executor.submit(blocking);
+
+        assertThat(first).isNotNull();
+        assertThat(second).as("호출자가 순차 실행").isNull();
+
+        release.countDown();
+        assertThat(executor.await(first, blocking)).isEqualTo(1L);
+    }
+
+    @Test
+    void sequentialOutsideReadOnlyTransaction() {
+        executor = new ParallelCountExecutor(transactionManager, true, 1, 10, 1000, 10);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+
+        assertThat(executor.submit(() -> 1L)).isNull();
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package study.querydsl.stats;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Member;
+import study.querydsl.Team;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.event.MemberBulkChangedEvent;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TeamStatisticsViewTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamStatisticsView teamStatisticsView;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void rebuild() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            transaction.executeWithoutResult(status -> {
+                Team teamA = new Team("rebuildA");
+                Team teamB = new Team("rebuildB");
+                em.persist(teamA);
+                em.persist(teamB);
+
+                em.persist(new Member("member1", 10, teamA));
+                em.persist(new Member("member2", 20, teamA));
+                em.persist(new Member("member3", 30, teamB));
+                em.persist(new Member("member4", 40, teamB));
+            });
+
+            teamStatisticsView.rebuild();
+            Map<String, TeamStatisticsDto> stats = statsOf("rebuildA", "rebuildB");
+
+            TeamStatisticsDto a = stats.get("rebuildA");
+            assertThat(a.getCount()).isEqualTo(2);
+            assertThat(a.getAvgAge()).isEqualTo(15);
+            assertThat(a.getMinAge()).isEqualTo(10);
+            assertThat(a.getMaxAge()).isEqualTo(20);
+            assertThat(a.getAgeHistogram()).containsEntry("10-19", 1L).containsEntry("20-29", 1L);
+
+            assertThat(stats.get("rebuildB").getAvgAge()).isEqualTo(35);
+        } finally {
+            deleteTeams(transaction, "rebuildA", "rebuildB");
+        }
+    }
+
+    /**
+     * 벌크 연산은 이벤트를 발행한 스레드가 아니라 백그라운드에서 다시 만들어 반영한다.
+     */
+    @Test
+    void rebuildAfterBulkChangeInBackground() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            transaction.executeWithoutResult(status -> {
+                Team team = new Team("bulkStats");
+                em.persist(team);
+                em.persist(new Member("member1", 10, team));
+                em.persist(new Member("member2", 20, team));
+            });
+            assertThat(statsOf("bulkStats").get("bulkStats").getSumAge()).isEqualTo(30);
+
+            transaction.executeWithoutResult(status -> em.createQuery(
+                    "update Member m set m.age = m.age + 1 where m.team.id in (select t.id from Team t where t.name = 'bulkStats')")
+                    .executeUpdate());
+            eventPublisher.publishEvent(new MemberBulkChangedEvent(Long.MIN_VALUE, Long.MAX_VALUE));
+
+            assertThat(teamStatisticsView.awaitRebuild(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(statsOf("bulkStats").get("bulkStats").getSumAge()).isEqualTo(32);
+        } finally {
+            deleteTeams(transaction, "bulkStats");
+        }
+    }
+
+    /**
+     * 커밋 이벤트만으로 반영한 결과가 처음부터 다시 만든 결과와 같아야 한다.
+     */
+    @Test
+    void incrementalChangesMatchRebuild() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Team teamA = new Team("statsA");
+        Team teamB = new Team("statsB");
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamB);
+        try {
+            // insert
+            transaction.executeWithoutResult(status -> {
+                em.persist(teamA);
+                em.persist(teamB);
+                em.persist(member1);
+                em.persist(member2);
+                em.persist(member3);
+            });
+            // update: 나이 변경
+            transaction.executeWithoutResult(status -> em.find(Member.class, member2.getId()).setAge(25));
+            // update: 팀 이동
+            transaction.executeWithoutResult(status ->
+                    em.find(Member.class, member1.getId()).setTeam(em.find(Team.class, teamB.getId())));
+            // delete
+            transaction.executeWithoutResult(status -> em.remove(em.find(Member.class, member3.getId())));
+
+            Map<String, TeamStatisticsDto> incremental = statsOf("statsA", "statsB");
+
+            TeamStatisticsDto a = incremental.get("statsA");
+            assertThat(a.getCount()).isEqualTo(1);
+            assertThat(a.getMinAge()).isEqualTo(25);
+            assertThat(a.getAgeHistogram()).containsOnlyKeys("20-29").containsEntry("20-29", 1L);
+            TeamStatisticsDto b = incremental.get("statsB");
+            assertThat(b.getCount()).isEqualTo(1);
+            assertThat(b.getSumAge()).isEqualTo(10);
+            assertThat(b.getMaxAge()).isEqualTo(10);
+            assertThat(b.getAgeHistogram()).containsOnlyKeys("10-19").containsEntry("10-19", 1L);
+
+            teamStatisticsView.rebuild();
+            assertThat(statsOf("statsA", "statsB")).isEqualTo(incremental);
+        } finally {
+            deleteTeams(transaction, "statsA", "statsB");
+        }
+    }
+
+    private void deleteTeams(TransactionTemplate transaction, String... teamNames) {
+        List<String> names = Arrays.asList(teamNames);
+        transaction.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.team.id in (select t.id from Team t where t.name in :names)")
+                    .setParameter("names", names)
+                    .executeUpdate();
+            em.createQuery("delete from Team t where t.name in :names").setParameter("names", names).executeUpdate();
+        });
+        teamStatisticsView.rebuild();
+    }
+
+    private Map<String, TeamStatisticsDto> statsOf(String... teamNames) {
+        List<String> names = Arrays.asList(teamNames);
+        return teamStatisticsView.findAll().stream()
+                .filter(stats -> names.contains(stats.getTeamName()))
+                .collect(Collectors.toMap(TeamStatisticsDto::getTeamName, Function.identity()));
+    }
+}